@@ -0,0 +1,54 @@
+import jason.asSemantics.Agent;
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the time of the belief update function (Agent.buf) for an agent
+ * that perceives many percepts (10000 by default) where only a few of them
+ * change in each cycle.
+ *
+ * As in jason.environment.Environment, the percepts that do not change are
+ * the same objects in all cycles.
+ */
+public class BufBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int nbPercepts = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int nbChanges  = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int nbCycles   = 200;
+
+        Agent ag = new Agent();
+        ag.initAg();
+
+        List<Literal> percepts = new ArrayList<Literal>(nbPercepts);
+        for (int i = 0; i < nbPercepts; i++)
+            percepts.add(percept(i));
+        ag.buf(percepts);
+
+        int next = nbPercepts;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int changes = 0;
+            for (int c = 0; c < nbCycles; c++) {
+                // replace some percepts by new ones
+                for (int i = 0; i < nbChanges; i++)
+                    percepts.set((next + i * 7919) % nbPercepts, percept(next + i));
+                next += nbChanges;
+                changes += ag.buf(new ArrayList<Literal>(percepts));
+            }
+            long time = (System.nanoTime() - start) / nbCycles;
+            System.out.println("round "+round+": "+(time / 1000)+" us/cycle, "+(changes / nbCycles)+" changes/cycle, "+ag.getBB().size()+" beliefs");
+        }
+        System.exit(0);
+    }
+
+    static Literal percept(int i) {
+        return ASSyntax.createLiteral("pos",
+                ASSyntax.createNumber(i),
+                ASSyntax.createStructure("cell", ASSyntax.createNumber(i % 100), ASSyntax.createAtom("room"+(i % 7))),
+                ASSyntax.createList(ASSyntax.createAtom("a"), ASSyntax.createNumber(i)));
+    }
+}
@@ -9,6 +9,7 @@ import jason.asSemantics.ActionExec;
 import jason.asSemantics.Message;
 import jason.asSemantics.TransitionSystem;
 import jason.asSyntax.Literal;
+import jason.environment.PerceptsChanges;
 import jason.infra.centralised.CentralisedAgArch;
 import jason.runtime.RuntimeServicesInfraTier;
 
@@ -148,6 +149,25 @@ public class AgArch implements Comparable<AgArch> {
             return successor.perceive();
     }
 
+    /** Returns true if the agent's perception is given by the changes
+     *  returned by perceiveChanges() instead of perceive().
+     */
+    public boolean isIncrementalPerception() {
+        return successor != null && successor.isIncrementalPerception();
+    }
+
+    /** Gets the changes in the agent's perception since the last call: the new
+     *  percepts and the percepts that are not perceived anymore.
+     *  Returns null if the perception doesn't changed.
+     *  The returned lists will be modified by Jason.
+     */
+    public PerceptsChanges perceiveChanges() {
+        if (successor == null)
+            return null;
+        else
+            return successor.perceiveChanges();
+    }
+
     /** Reads the agent's mailbox and adds messages into
         the agent's circumstance */
     public void checkMail() {
@@ -42,6 +42,7 @@ import jason.asSyntax.LogicalFormula;
 import jason.asSyntax.Plan;
 import jason.asSyntax.PlanLibrary;
 import jason.asSyntax.Rule;
+import jason.asSyntax.SharedLiteral;
 import jason.asSyntax.Term;
 import jason.asSyntax.Trigger;
 import jason.asSyntax.Trigger.TEOperator;
@@ -804,11 +805,10 @@ public class Agent {
 
         for (StructureWrapperForLiteral lw: perW) {
             try {
-                Literal lp = lw.getLiteral().copy().forceFullLiteralImpl();
-                lp.addAnnot(BeliefBase.TPercept);
+                Literal lp = perceptToAdd(lw.getLiteral());
                 if (getBB().add(lp)) {
                     adds++;
-                    ts.updateEvents(new Event(new Trigger(TEOperator.add, TEType.belief, lp), Intention.EmptyInt));
+                    perceptAdded(lp);
                 }
             } catch (Exception e) {
                 logger.log(Level.SEVERE, "Error adding percetion " + lw.getLiteral(), e);
@@ -822,6 +822,77 @@ public class Agent {
         return adds + dels;
     }
 
+    /** returns the literal to be added in the BB for a percept:
+     *  a copy annotated with source(percept), or the percept itself if it is shared.
+     *  The copy is made by capply, so it shares the ground arguments of the percept
+     *  and the next cycles compare them by identity in buf.
+     */
+    private Literal perceptToAdd(Literal p) {
+        if (p instanceof SharedLiteral && p.hasAnnot(BeliefBase.TPercept))
+            return p;
+        Literal lp = ((Literal)p.capply(new Unifier())).forceFullLiteralImpl();
+        lp.addAnnot(BeliefBase.TPercept);
+        return lp;
+    }
+
+    /** produces the event for the addition of the percept lp in the BB. Shared percepts
+     *  are copied (only if the event is relevant), since the literal of the event may
+     *  be changed afterwards and the shared one can not. */
+    private void perceptAdded(Literal lp) {
+        Trigger te = new Trigger(TEOperator.add, TEType.belief, lp);
+        if (lp instanceof SharedLiteral) {
+            if (!ts.getC().hasListener() && !pl.hasCandidatePlan(te))
+                return;
+            te.setLiteral(lp.copy());
+        }
+        ts.updateEvents(new Event(te, Intention.EmptyInt));
+    }
+
+    /** Belief Update Function for incremental perception: adds the new percepts
+     *  and removes the percepts not perceived anymore, without considering the
+     *  other percepts in the belief base.
+     *
+     *  @return the number of changes (add + dels)
+     */
+    public int buf(Collection<Literal> added, Collection<Literal> removed) {
+        int adds = 0;
+        int dels = 0;
+
+        if (removed != null) {
+            for (Literal r: removed) {
+                Literal lp = r.copy().forceFullLiteralImpl();
+                lp.clearAnnots();
+                lp.addAnnot(BeliefBase.TPercept);
+                Literal l = getBB().contains(lp);
+                if (l != null && l.subjectToBUF() && l.hasAnnot(BeliefBase.TPercept) && getBB().remove(lp)) {
+                    dels++;
+                    Trigger te = new Trigger(TEOperator.del, TEType.belief, l);
+                    if (ts.getC().hasListener() || pl.hasCandidatePlan(te)) {
+                        l = ASSyntax.createLiteral(l.getFunctor(), l.getTermsArray());
+                        l.addAnnot(BeliefBase.TPercept);
+                        te.setLiteral(l);
+                        ts.getC().addEvent(new Event(te, Intention.EmptyInt));
+                    }
+                }
+            }
+        }
+
+        if (added != null) {
+            for (Literal a: added) {
+                try {
+                    Literal lp = perceptToAdd(a);
+                    if (getBB().add(lp)) {
+                        adds++;
+                        perceptAdded(lp);
+                    }
+                } catch (Exception e) {
+                    logger.log(Level.SEVERE, "Error adding percetion " + a, e);
+                }
+            }
+        }
+        return adds + dels;
+    }
+
 
     /*
     public QueryCacheSimple getQueryCache() {
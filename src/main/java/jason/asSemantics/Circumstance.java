@@ -23,7 +23,7 @@ public class Circumstance implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
-    private   Queue<Event>             E;
+    private   EventQueue               E;
     private   Queue<Intention>         I;
     protected ActionExec               A;
     private   Queue<Message>           MB;
@@ -40,7 +40,7 @@ public class Circumstance implements Serializable {
     private Map<Integer, ActionExec>   PA; // Pending actions, waiting action execution (key is the intention id)
     private List<ActionExec>           FA; // Feedback actions, those that are already executed
 
-    private Map<String, Intention>     PI; // pending intentions, intentions suspended by any other reason
+    private PendingIntentions          PI; // pending intentions, intentions suspended by any other reason
     private Map<String, Event>         PE; // pending events, events suspended by .suspend
 
     private Queue<CircumstanceListener> listeners = new ConcurrentLinkedQueue<CircumstanceListener>();
@@ -60,12 +60,11 @@ public class Circumstance implements Serializable {
 
     /** creates new collections for E, I, MB, PA, PI, and FA */
     public void create() {
-        // use LinkedList since we use a lot of remove(0) in selectEvent
-        E  = new ConcurrentLinkedQueue<Event>();
-        I  = new ConcurrentLinkedQueue<Intention>();
+        E  = new EventQueue();
+        I  = new IntentionQueue();
         MB = new ConcurrentLinkedQueue<Message>();
         PA = new ConcurrentHashMap<Integer, ActionExec>();
-        PI = new ConcurrentHashMap<String, Intention>();
+        PI = new PendingIntentions();
         PE = new ConcurrentHashMap<String, Event>();
         FA = new ArrayList<ActionExec>();
     }
@@ -119,17 +118,7 @@ public class Circumstance implements Serializable {
 
     public void insertMetaEvent(Event ev) {
         // meta events have to be placed in the begin of the queue, but not before other meta events
-        List<Event> newE = new ArrayList<Event>(E); // make a list of events to find the best place to insert the new event
-        int pos = 0;
-        for (Event e: newE) {
-            if (!e.getTrigger().isMetaEvent()) {
-                break;
-            }
-            pos++;
-        }
-        newE.add(pos,ev);
-        E.clear();
-        E.addAll(newE);
+        E.insertMetaEvent(ev);
 
         // notify listeners
         if (listeners != null)
@@ -153,15 +142,13 @@ public class Circumstance implements Serializable {
 
     // remove events based on a match with a trigger
     public void removeEvents(Trigger te, Unifier un) {
-        Iterator<Event> ie = E.iterator();
-        while (ie.hasNext()) {
-            Event ev = ie.next();
+        for (Event ev: getEvents(te, un)) {
             Trigger t = ev.getTrigger();
             if (ev.getIntention() != Intention.EmptyInt) { // since the unifier of the intention will not be used, apply it to the event before comparing to the event to be dropped
                 t = t.capply(ev.getIntention().peek().getUnif());
             }
-            if (un.clone().unifiesNoUndo(te, t)) {
-                ie.remove();
+            if (unifiesAndUndo(un, te, t)) {
+                E.remove(ev);
                 if (ev.getIntention() != null && listeners != null)
                     for (CircumstanceListener el : listeners)
                         el.intentionDropped(ev.getIntention());
@@ -169,6 +156,16 @@ public class Circumstance implements Serializable {
         }
     }
 
+    /** whether te and t unify with un, the changes in un are undone (instead of cloning it) */
+    private static boolean unifiesAndUndo(Unifier un, Trigger te, Trigger t) {
+        int m = un.mark();
+        try {
+            return un.unifiesNoUndo(te, t);
+        } finally {
+            un.undo(m);
+        }
+    }
+
     public void clearEvents() {
         // notify listeners
         if (listeners != null)
@@ -189,6 +186,16 @@ public class Circumstance implements Serializable {
         return E;
     }
 
+    /**
+     * get the events of E (not including the atomic event) that may unify with te in un:
+     * the index of E by predicate indicator is used to find them
+     */
+    public Iterable<Event> getEvents(Trigger te, Unifier un) {
+        if (te.getLiteral().isVar() && un != null)
+            te = te.capply(un); // the predicate indicator of te comes from the value of the var
+        return E.getEvents(te);
+    }
+
     /** get the all events (which include the atomic event, if it exists) */
     public Iterator<Event> getEventsPlusAtomic() {
         if (AE == null) {
@@ -201,6 +208,20 @@ public class Circumstance implements Serializable {
         }
     }
 
+    /** get the events that may unify with te in un, including the atomic event (if it exists) */
+    public Iterator<Event> getEventsPlusAtomic(Trigger te, Unifier un) {
+        Iterable<Event> evts = getEvents(te, un);
+        if (AE == null) {
+            return evts.iterator();
+        } else {
+            List<Event> l = new ArrayList<Event>();
+            l.add(AE);
+            for (Event e: evts)
+                l.add(e);
+            return l.iterator();
+        }
+    }
+
     public boolean hasEvent() {
         return AE != null || !E.isEmpty();
     }
@@ -421,28 +442,24 @@ public class Circumstance implements Serializable {
         return i;
     }
     public Intention removePendingIntention(int intentionId) {
-        for (String key: PI.keySet()) {
-            Intention pii = PI.get(key);
-            if (pii.getId() == intentionId)
-                return removePendingIntention(key);
-        }
+        String key = PI.getKey(intentionId);
+        if (key != null)
+            return removePendingIntention(key);
         return null;
     }
 
     /** removes the intention i from PI and notify listeners that the intention was dropped */
     public boolean dropPendingIntention(Intention i) {
-        // use a loop instead of get because the intention (the value) is used in the search instead of the key
-        for (String key: PI.keySet()) {
-            Intention pii = PI.get(key);
-            if (pii.equals(i)) {
-                removePendingIntention(key);
+        // the intention (the value) is used in the search instead of the key, so the index by intention id is used
+        String key = PI.getKey(i.getId());
+        if (key != null) {
+            removePendingIntention(key);
 
-                // check in wait internal action
-                if (listeners != null)
-                    for (CircumstanceListener el : listeners)
-                        el.intentionDropped(i);
-                return true;
-            }
+            // check in wait internal action
+            if (listeners != null)
+                for (CircumstanceListener el : listeners)
+                    el.intentionDropped(i);
+            return true;
         }
         return false;
     }
@@ -492,7 +509,7 @@ public class Circumstance implements Serializable {
             if (ev.getIntention() != Intention.EmptyInt) { // since the unifier of the intention will not be used, apply it to the event before comparing to the event to be dropped
                 t = t.capply(ev.getIntention().peek().getUnif());
             }
-            if (un.clone().unifiesNoUndo(te, t)) {
+            if (unifiesAndUndo(un, te, t)) {
                 ie.remove();
 
                 if (listeners != null && ev.getIntention() != null)
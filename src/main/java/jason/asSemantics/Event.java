@@ -44,6 +44,17 @@ public class Event implements Serializable {
         return intention != null && intention.isAtomic();
     }
 
+    /**
+     * returns the priority of the event (null if none): the N of an annotation
+     * priority(N) of the trigger literal or, for internal events, the priority of the intention
+     */
+    public Integer getPriority() {
+        Integer p = IntendedMeans.getPriority(trigger.getLiteral(), null);
+        if (p == null && intention != null)
+            p = intention.getPriority();
+        return p;
+    }
+
 
     @Override
     public boolean equals(Object o) {
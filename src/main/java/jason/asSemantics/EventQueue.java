@@ -0,0 +1,365 @@
+package jason.asSemantics;
+
+import jason.asSyntax.Literal;
+import jason.asSyntax.Trigger;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The queue of events of the circumstance (C.E).
+ *
+ * <p>Besides the FIFO order (used by selectEvent), the events are indexed by
+ * the predicate indicator of their triggers, so that the events that may
+ * unify with some trigger (see {@link #getEvents(Trigger)}) and the removal
+ * of some event do not scan the whole queue.
+ *
+ * <p>Events may have a priority (see {@link Event#getPriority()}). While no
+ * event with priority is in the queue, poll is FIFO. Once some has been added,
+ * the events are also kept in a heap and poll selects (in O(log n)) the event
+ * with the highest priority (FIFO among events with the same priority, events
+ * without priority have priority 0, and meta events go first). The queue returns
+ * to FIFO when it becomes empty.
+ *
+ * <p>As ConcurrentLinkedQueue (the previous implementation of C.E), it can be
+ * used by several threads and its iterators are weakly consistent: they do
+ * not throw ConcurrentModificationException.
+ */
+public class EventQueue extends AbstractQueue<Event> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** the key of events whose trigger has a var as literal or namespace (they may unify with any trigger) */
+    private static final Object VAR_KEY = new Object();
+
+    private static final class Node {
+        final Event      event;
+        final Object     key;
+        final boolean    meta;     // inserted by insertMetaEvent
+        final int        priority;
+        final long       seq;
+        volatile Node    next;
+        volatile boolean removed = false;
+        Node             prev;   // guarded by the queue lock
+
+        Node(Event event, Object key, boolean meta, int priority, long seq) {
+            this.event    = event;
+            this.key      = key;
+            this.meta     = meta;
+            this.priority = priority;
+            this.seq      = seq;
+        }
+    }
+
+    /** meta events first, then higher priority first, then FIFO */
+    private static final Comparator<Node> SCHEDULE = new Comparator<Node>() {
+        public int compare(Node a, Node b) {
+            if (a.meta != b.meta)
+                return a.meta ? -1 : 1;
+            if (a.priority != b.priority)
+                return a.priority > b.priority ? -1 : 1;
+            return a.seq < b.seq ? -1 : (a.seq == b.seq ? 0 : 1);
+        }
+    };
+
+    // the nodes removed from the list keep their next, so that iterators positioned on them can continue
+    private transient Node                         head;   // sentinel
+    private transient Node                         tail;
+    private transient Map<Object, Set<Node>>       index;
+    private transient volatile int                 size;
+    private transient long                         seq;
+    private transient volatile PriorityQueue<Node> heap;   // null while no event with priority was added (FIFO)
+
+    public EventQueue() {
+        init();
+    }
+
+    private void init() {
+        head  = new Node(null, null, false, 0, 0);
+        tail  = head;
+        index = new HashMap<Object, Set<Node>>();
+        size  = 0;
+        seq   = 0;
+        heap  = null;
+    }
+
+    private Node newNode(Event ev, boolean meta) {
+        Integer p = ev.getPriority();
+        Node n = new Node(ev, keyOf(ev.getTrigger()), meta, p == null ? 0 : p, seq++);
+        if (heap == null && p != null) {
+            // the first event with priority: from now on, the events are also kept in the heap
+            heap = new PriorityQueue<Node>(Math.max(11, size * 2), SCHEDULE);
+            for (Node o = head.next; o != null; o = o.next)
+                heap.add(o);
+        }
+        return n;
+    }
+
+    private static Object keyOf(Trigger t) {
+        Literal l = t.getLiteral();
+        if (l.isVar() || l.getNS().isVar())
+            return VAR_KEY;
+        return t.getPredicateIndicator();
+    }
+
+    public synchronized boolean offer(Event ev) {
+        if (ev == null)
+            throw new NullPointerException();
+        Node n = newNode(ev, false);
+        n.prev    = tail;
+        tail.next = n;
+        tail      = n;
+        addIndex(n);
+        return true;
+    }
+
+    /** inserts ev in the begin of the queue, but after the meta events already there */
+    public synchronized void insertMetaEvent(Event ev) {
+        Node p = head;
+        while (p.next != null && p.next.event.getTrigger().isMetaEvent())
+            p = p.next;
+        Node n = newNode(ev, true);
+        n.prev = p;
+        n.next = p.next;
+        if (p.next == null)
+            tail = n;
+        else
+            p.next.prev = n;
+        p.next = n;
+        addIndex(n);
+    }
+
+    public synchronized Event poll() {
+        Node n = heap == null ? head.next : heapTop();
+        if (n == null)
+            return null;
+        unlink(n);
+        return n.event;
+    }
+
+    public Event peek() {
+        if (heap != null) {
+            synchronized (this) {
+                if (heap != null) {
+                    Node n = heapTop();
+                    return n == null ? null : n.event;
+                }
+            }
+        }
+        Node n = head.next;
+        return n == null ? null : n.event;
+    }
+
+    /** returns the node with the highest priority, removing from the heap the nodes already removed from the queue */
+    private Node heapTop() {
+        Node n = heap.peek();
+        while (n != null && n.removed) {
+            heap.poll();
+            n = heap.peek();
+        }
+        return n;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    @Override
+    public synchronized boolean remove(Object o) {
+        Node n = find(o);
+        if (n == null)
+            return false;
+        unlink(n);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        return find(o) != null;
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (Node n = head.next; n != null; n = n.next)
+            n.removed = true;
+        head.next = null;
+        tail      = head;
+        index.clear();
+        size      = 0;
+        heap      = null;
+    }
+
+    /**
+     * returns the events that may unify with te: those whose trigger has the
+     * same predicate indicator and those whose trigger literal is a var, in
+     * the order of the queue. If the literal of te is a var, all events are returned.
+     */
+    public Iterable<Event> getEvents(Trigger te) {
+        Object key = keyOf(te);
+        if (key == VAR_KEY)
+            return this;
+        List<Event> r;
+        synchronized (this) {
+            Set<Node> s  = index.get(key);
+            Set<Node> sv = index.get(VAR_KEY);
+            if (s == null && sv == null)
+                return Collections.emptyList();
+            r = new ArrayList<Event>((s == null ? 0 : s.size()) + (sv == null ? 0 : sv.size()));
+
+            // the meta events in the begin of the queue are not in the order of seq (see insertMetaEvent)
+            Node n = head.next;
+            while (n != null && (n.meta || n.event.getTrigger().isMetaEvent())) {
+                if (n.key.equals(key) || n.key == VAR_KEY)
+                    r.add(n.event);
+                n = n.next;
+            }
+            if (n != null) {
+                // the other events were added by offer, so their order in the queue is the order of seq: merge both sets
+                Set<Node>      empty = Collections.emptySet();
+                Iterator<Node> i     = (s  == null ? empty : s).iterator();
+                Iterator<Node> iv    = (sv == null ? empty : sv).iterator();
+                Node a = nextFrom(i,  n.seq);
+                Node b = nextFrom(iv, n.seq);
+                while (a != null || b != null) {
+                    if (b == null || (a != null && a.seq < b.seq)) {
+                        r.add(a.event);
+                        a = nextFrom(i, n.seq);
+                    } else {
+                        r.add(b.event);
+                        b = nextFrom(iv, n.seq);
+                    }
+                }
+            }
+        }
+        return r;
+    }
+
+    /** returns the next node of i added by offer with seq >= first (i.e., not in the meta events in the begin of the queue) */
+    private static Node nextFrom(Iterator<Node> i, long first) {
+        while (i.hasNext()) {
+            Node n = i.next();
+            if (!n.meta && n.seq >= first)
+                return n;
+        }
+        return null;
+    }
+
+    /** returns the node for an event equals to o (null if none) */
+    private Node find(Object o) {
+        if (!(o instanceof Event))
+            return null;
+        Set<Node> s = index.get(keyOf(((Event)o).getTrigger()));
+        if (s != null)
+            for (Node n: s)
+                if (n.event.equals(o))
+                    return n;
+        return null;
+    }
+
+    private void addIndex(Node n) {
+        Set<Node> s = index.get(n.key);
+        if (s == null) {
+            s = new LinkedHashSet<Node>();
+            index.put(n.key, s);
+        }
+        s.add(n);
+        size++;
+        if (heap != null)
+            heap.add(n);
+    }
+
+    private void unlink(Node n) {
+        n.removed = true;
+        n.prev.next = n.next;
+        if (n.next == null)
+            tail = n.prev;
+        else
+            n.next.prev = n.prev;
+        Set<Node> s = index.get(n.key);
+        s.remove(n);
+        if (s.isEmpty())
+            index.remove(n.key);
+        size--;
+        if (heap != null) {
+            if (size == 0) {
+                heap = null; // back to FIFO
+            } else if (heap.peek() == n) {
+                heap.poll();
+            } else if (heap.size() > 2 * size + 16) {
+                // too many removed nodes (by remove or the iterator) waiting in the heap
+                PriorityQueue<Node> h = new PriorityQueue<Node>(size * 2, SCHEDULE);
+                for (Node o = head.next; o != null; o = o.next)
+                    h.add(o);
+                heap = h;
+            }
+        }
+    }
+
+    public Iterator<Event> iterator() {
+        return new Iterator<Event>() {
+            Node next    = advance(head);
+            Node lastRet = null;
+
+            Node advance(Node n) {
+                n = n.next;
+                while (n != null && n.removed)
+                    n = n.next;
+                return n;
+            }
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public Event next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                lastRet = next;
+                next    = advance(next);
+                return lastRet.event;
+            }
+
+            public void remove() {
+                if (lastRet == null)
+                    throw new IllegalStateException();
+                synchronized (EventQueue.this) {
+                    if (!lastRet.removed)
+                        unlink(lastRet);
+                }
+                lastRet = null;
+            }
+        };
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(new ArrayList<Event>(this));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init();
+        for (Event e: (List<Event>)in.readObject())
+            offer(e);
+    }
+}
@@ -1,6 +1,8 @@
 package jason.asSemantics;
 
 import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import jason.asSyntax.NumberTerm;
 import jason.asSyntax.Plan;
 import jason.asSyntax.PlanBody;
 import jason.asSyntax.PlanBodyImpl;
@@ -23,6 +25,8 @@ public class IntendedMeans implements Serializable {
 
     protected Unifier  renamedVars = null;
 
+    private   Integer  priority = null; // the priority(N) of the plan label or trigger, or the priority of the IM below it in the intention (see Intention.push)
+
     public IntendedMeans(Option opt, Trigger te) {
         plan     = opt.getPlan();
         planBody = plan.getBody();
@@ -33,6 +37,10 @@ public class IntendedMeans implements Serializable {
         } else {
             trigger = te.capply(unif);
         }
+
+        priority = getPriority(plan.getLabel(), unif);
+        if (priority == null)
+            priority = getPriority(trigger.getLiteral(), null);
     }
 
     // used by clone
@@ -84,6 +92,40 @@ public class IntendedMeans implements Serializable {
         return plan != null && plan.isAtomic();
     }
 
+    /**
+     * returns the priority of this IM (null if none): the N of an annotation
+     * priority(N) in the label of the plan or in the trigger (e.g. !g[priority(5)]);
+     * IMs without priority have the priority of the IM below them in the intention.
+     */
+    public Integer getPriority() {
+        return priority;
+    }
+
+    void inheritPriority(IntendedMeans below) {
+        if (priority == null && below != null)
+            priority = below.priority;
+    }
+
+    /** returns the N of an annotation priority(N) of l (null if l has no such annotation or N is not a number) */
+    static Integer getPriority(Literal l, Unifier u) {
+        if (l == null || !l.hasAnnot())
+            return null;
+        Literal p = l.getAnnot("priority");
+        if (p == null || p.getArity() != 1)
+            return null;
+        Term n = p.getTerm(0);
+        if (u != null && !n.isGround())
+            n = n.capply(u);
+        if (n.isNumeric()) {
+            try {
+                return (int)((NumberTerm)n).solve();
+            } catch (Exception e) {
+                // not a number
+            }
+        }
+        return null;
+    }
+
     public boolean isFinished() {
         return planBody == null || planBody.isEmptyBody();
     }
@@ -99,6 +141,7 @@ public class IntendedMeans implements Serializable {
             c.planBody = this.planBody.clonePB();
         c.trigger  = this.trigger.clone();
         c.plan     = this.plan;
+        c.priority = this.priority;
         return c;
     }
 
@@ -52,6 +52,7 @@ public class Intention implements Serializable, Comparable<Intention>, Iterable<
     }
 
     public void push(IntendedMeans im) {
+        im.inheritPriority(intendedMeans.peek());
         intendedMeans.push(im);
         if (im.isAtomic())
             atomicCount++;
@@ -63,6 +64,12 @@ public class Intention implements Serializable, Comparable<Intention>, Iterable<
         return intendedMeans.peek();
     }
 
+    /** returns the priority of the IM on top of the intention (null if it has no priority), see IntendedMeans.getPriority() */
+    public Integer getPriority() {
+        IntendedMeans im = intendedMeans.peek();
+        return im == null ? null : im.getPriority();
+    }
+
     public IntendedMeans pop() {
         IntendedMeans top = intendedMeans.pop();
 
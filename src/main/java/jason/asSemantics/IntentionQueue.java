@@ -0,0 +1,226 @@
+package jason.asSemantics;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The queue of running intentions of the circumstance (C.I).
+ *
+ * <p>Intentions may have a priority (see {@link Intention#getPriority()}).
+ * While no intention with priority is in the queue, it is a FIFO queue (so
+ * intentions are executed in round robin). Once some has been added, the
+ * intentions are kept in a heap and poll selects (in O(log n)) the intention
+ * with the highest priority (FIFO among intentions with the same priority,
+ * intentions without priority have priority 0). The queue returns to FIFO
+ * when it becomes empty. Notice that, with priorities, intentions with low
+ * priority may starve.
+ *
+ * <p>As ConcurrentLinkedQueue (the previous implementation of C.I), it can be
+ * used by several threads and its iterators do not throw
+ * ConcurrentModificationException (while using the heap, they iterate a copy
+ * of the queue).
+ */
+public class IntentionQueue extends AbstractQueue<Intention> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final class Entry {
+        final Intention intention;
+        final int       priority;
+        final long      seq;
+
+        Entry(Intention intention, int priority, long seq) {
+            this.intention = intention;
+            this.priority  = priority;
+            this.seq       = seq;
+        }
+    }
+
+    /** higher priority first, then FIFO */
+    private static final Comparator<Entry> SCHEDULE = new Comparator<Entry>() {
+        public int compare(Entry a, Entry b) {
+            if (a.priority != b.priority)
+                return a.priority > b.priority ? -1 : 1;
+            return a.seq < b.seq ? -1 : (a.seq == b.seq ? 0 : 1);
+        }
+    };
+
+    private transient Queue<Intention>              fifo;   // used while heap is null
+    private transient volatile PriorityQueue<Entry> heap;
+    private transient long                          seq;
+
+    public IntentionQueue() {
+        init();
+    }
+
+    private void init() {
+        fifo = new ConcurrentLinkedQueue<Intention>();
+        heap = null;
+        seq  = 0;
+    }
+
+    public synchronized boolean offer(Intention i) {
+        if (i == null)
+            throw new NullPointerException();
+        Integer p = i.getPriority();
+        if (heap == null) {
+            if (p == null)
+                return fifo.offer(i);
+
+            // the first intention with priority: move the queue to the heap
+            PriorityQueue<Entry> h = new PriorityQueue<Entry>(Math.max(11, fifo.size() * 2), SCHEDULE);
+            for (Intention o: fifo)
+                h.add(new Entry(o, priorityOf(o), seq++));
+            heap = h; // published before clearing fifo, so that the readers without lock do not see an empty queue
+            fifo.clear();
+        }
+        return heap.add(new Entry(i, p == null ? 0 : p, seq++));
+    }
+
+    private static int priorityOf(Intention i) {
+        Integer p = i.getPriority();
+        return p == null ? 0 : p;
+    }
+
+    public synchronized Intention poll() {
+        if (heap == null)
+            return fifo.poll();
+        Entry e = heap.poll();
+        if (heap.isEmpty())
+            heap = null; // back to FIFO
+        return e == null ? null : e.intention;
+    }
+
+    public Intention peek() {
+        if (heap == null) {
+            Intention i = fifo.peek();
+            if (i != null || heap == null) // fifo may have been moved to the heap meanwhile
+                return i;
+        }
+        synchronized (this) {
+            if (heap == null)
+                return fifo.peek();
+            Entry e = heap.peek();
+            return e == null ? null : e.intention;
+        }
+    }
+
+    public int size() {
+        if (heap == null) {
+            int s = fifo.size();
+            if (s > 0 || heap == null) // fifo may have been moved to the heap meanwhile
+                return s;
+        }
+        synchronized (this) {
+            return heap == null ? fifo.size() : heap.size();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        // fifo first: it is cleared only after the heap is published
+        return fifo.isEmpty() && heap == null;
+    }
+
+    @Override
+    public synchronized boolean remove(Object o) {
+        if (heap == null)
+            return fifo.remove(o);
+        Iterator<Entry> i = heap.iterator();
+        while (i.hasNext()) {
+            if (i.next().intention.equals(o)) {
+                i.remove();
+                if (heap.isEmpty())
+                    heap = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        if (heap == null)
+            return fifo.contains(o);
+        for (Entry e: heap)
+            if (e.intention.equals(o))
+                return true;
+        return false;
+    }
+
+    @Override
+    public synchronized void clear() {
+        fifo.clear();
+        heap = null;
+    }
+
+    public Iterator<Intention> iterator() {
+        final Iterator<Intention> i;
+        if (heap == null) {
+            i = fifo.iterator();
+        } else {
+            synchronized (this) {
+                i = toList().iterator();
+            }
+        }
+        return new Iterator<Intention>() {
+            Intention lastRet = null;
+
+            public boolean hasNext() {
+                return i.hasNext();
+            }
+
+            public Intention next() {
+                lastRet = i.next();
+                return lastRet;
+            }
+
+            public void remove() {
+                if (lastRet == null)
+                    throw new IllegalStateException();
+                IntentionQueue.this.remove(lastRet);
+                lastRet = null;
+            }
+        };
+    }
+
+    /** returns the intentions in the order they would be selected */
+    private List<Intention> toList() {
+        List<Intention> l = new ArrayList<Intention>(size());
+        if (heap == null) {
+            l.addAll(fifo);
+        } else {
+            Entry[] es = heap.toArray(new Entry[heap.size()]);
+            Arrays.sort(es, SCHEDULE);
+            for (Entry e: es)
+                l.add(e.intention);
+        }
+        return l;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        synchronized (this) {
+            out.writeObject(toList());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init();
+        for (Intention i: (List<Intention>)in.readObject())
+            offer(i);
+    }
+}
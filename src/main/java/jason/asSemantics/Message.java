@@ -1,6 +1,7 @@
 package jason.asSemantics;
 
 import jason.asSyntax.ASSyntax;
+import jason.asSyntax.SymbolTable;
 import jason.asSyntax.parser.ParseException;
 
 import java.io.Serializable;
@@ -35,8 +36,8 @@ public class Message implements Serializable {
 
     public Message(String ilf, String s, String r, Object c, String id) {
         setIlForce(ilf);
-        sender   = s;
-        receiver = r;
+        sender   = SymbolTable.intern(s);
+        receiver = SymbolTable.intern(r);
         propCont = c;
         msgId    = id;
     }
@@ -64,7 +65,7 @@ public class Message implements Serializable {
         if (ilf.equals("tell-how")) ilf = "tellHow";
         if (ilf.equals("ask-how")) ilf = "askHow";
         if (ilf.equals("untell-how")) ilf = "untellHow";
-        ilForce = ilf;
+        ilForce = SymbolTable.intern(ilf);
     }
 
     public boolean isAsk() {
@@ -100,13 +101,13 @@ public class Message implements Serializable {
         return receiver;
     }
     public void setSender(String agName) {
-        sender = agName;
+        sender = SymbolTable.intern(agName);
     }
     public String getSender() {
         return sender;
     }
     public void setReceiver(String agName) {
-        receiver = agName;
+        receiver = SymbolTable.intern(agName);
     }
 
     public String getMsgId() {
@@ -148,11 +149,11 @@ public class Message implements Serializable {
                 newmsg.msgId = msg.substring(1, one);
             }
             two = msg.indexOf(",", one + 1);
-            newmsg.sender = msg.substring(one + 1, two);
+            newmsg.sender = SymbolTable.intern(msg.substring(one + 1, two));
             one = msg.indexOf(",", two + 1);
-            newmsg.ilForce = msg.substring(two + 1, one);
+            newmsg.ilForce = SymbolTable.intern(msg.substring(two + 1, one));
             two = msg.indexOf(",", one + 1);
-            newmsg.receiver = msg.substring(one + 1, two);
+            newmsg.receiver = SymbolTable.intern(msg.substring(one + 1, two));
             one = msg.indexOf(">", two + 1);
             String content = msg.substring(two + 1, one);
             newmsg.propCont = ASSyntax.parseTerm(content);
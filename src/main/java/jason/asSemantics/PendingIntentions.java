@@ -0,0 +1,159 @@
+package jason.asSemantics;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The pending intentions of the circumstance (C.PI), a map from the reason of
+ * the suspension (e.g. the id of a message or of a .wait) to the intention.
+ *
+ * <p>Besides the map, the keys are indexed by the id of the intentions, so
+ * that an intention can be found (and removed) without scanning all keys
+ * (see {@link #getKeys(int)}). The index is kept consistent for changes done
+ * by the views (keySet, values, entrySet) and their iterators.
+ *
+ * <p>As ConcurrentHashMap (the previous implementation of C.PI), it can be
+ * used by several threads and its iterators are weakly consistent.
+ */
+public class PendingIntentions extends AbstractMap<String, Intention> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Intention>        map   = new ConcurrentHashMap<String, Intention>();
+    private transient Map<Integer, Set<String>> index = new HashMap<Integer, Set<String>>(); // guarded by this
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public Intention get(Object key) {
+        return map.get(key);
+    }
+
+    @Override
+    public synchronized boolean containsValue(Object i) {
+        return i instanceof Intention && index.containsKey(((Intention)i).getId());
+    }
+
+    @Override
+    public synchronized Intention put(String key, Intention i) {
+        Intention old = map.put(key, i);
+        if (old != null)
+            removeIndex(key, old);
+        addIndex(key, i);
+        return old;
+    }
+
+    @Override
+    public synchronized Intention remove(Object key) {
+        Intention i = map.remove(key);
+        if (i != null)
+            removeIndex((String)key, i);
+        return i;
+    }
+
+    @Override
+    public synchronized void clear() {
+        map.clear();
+        index.clear();
+    }
+
+    /** returns the keys under which the intention with id intentionId is pending (empty if none) */
+    public synchronized Set<String> getKeys(int intentionId) {
+        Set<String> keys = index.get(intentionId);
+        if (keys == null)
+            return Collections.emptySet();
+        return new LinkedHashSet<String>(keys);
+    }
+
+    /** returns some key under which the intention with id intentionId is pending (null if none) */
+    public synchronized String getKey(int intentionId) {
+        Set<String> keys = index.get(intentionId);
+        return keys == null ? null : keys.iterator().next();
+    }
+
+    private void addIndex(String key, Intention i) {
+        Set<String> keys = index.get(i.getId());
+        if (keys == null) {
+            keys = new LinkedHashSet<String>(2);
+            index.put(i.getId(), keys);
+        }
+        keys.add(key);
+    }
+
+    private void removeIndex(String key, Intention i) {
+        Set<String> keys = index.get(i.getId());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty())
+                index.remove(i.getId());
+        }
+    }
+
+    private transient Set<Map.Entry<String, Intention>> entrySet;
+
+    @Override
+    public Set<Map.Entry<String, Intention>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<String, Intention>>() {
+                public int size() {
+                    return map.size();
+                }
+                public void clear() {
+                    PendingIntentions.this.clear();
+                }
+                public Iterator<Map.Entry<String, Intention>> iterator() {
+                    final Iterator<Map.Entry<String, Intention>> i = map.entrySet().iterator();
+                    return new Iterator<Map.Entry<String, Intention>>() {
+                        Map.Entry<String, Intention> lastRet = null;
+
+                        public boolean hasNext() {
+                            return i.hasNext();
+                        }
+                        public Map.Entry<String, Intention> next() {
+                            lastRet = i.next();
+                            // entries are read only, setValue would not update the index
+                            return new AbstractMap.SimpleImmutableEntry<String, Intention>(lastRet);
+                        }
+                        public void remove() {
+                            if (lastRet == null)
+                                throw new IllegalStateException();
+                            PendingIntentions.this.remove(lastRet.getKey());
+                            lastRet = null;
+                        }
+                    };
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        index = new HashMap<Integer, Set<String>>();
+        for (Map.Entry<String, Intention> e: map.entrySet())
+            addIndex(e.getKey(), e.getValue());
+    }
+}
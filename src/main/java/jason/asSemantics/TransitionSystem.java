@@ -18,6 +18,7 @@ import jason.RevisionFailedException;
 import jason.architecture.AgArch;
 import jason.asSemantics.GoalListener.FinishStates;
 import jason.asSyntax.ASSyntax;
+import jason.asSyntax.ArrayListTerm;
 import jason.asSyntax.Atom;
 import jason.asSyntax.BinaryStructure;
 import jason.asSyntax.InternalActionLiteral;
@@ -43,6 +44,7 @@ import jason.asSyntax.UnnamedVar;
 import jason.asSyntax.VarTerm;
 import jason.asSyntax.parser.ParseException;
 import jason.bb.BeliefBase;
+import jason.environment.PerceptsChanges;
 import jason.runtime.Settings;
 import jason.stdlib.add_nested_source;
 import jason.stdlib.desire;
@@ -310,14 +312,13 @@ public class TransitionSystem {
                 if (m.isUnTell() && send.getTerm(1).toString().equals("askOne")) {
                     content = Literal.LFalse;
                 } else if (content.isLiteral()) { // adds source in the content if possible
-                    content = add_nested_source.addAnnotToList(content, new Atom(m.getSender()));
+                    content = add_nested_source.addAnnotToList(content, ASSyntax.createAtom(m.getSender()));
                 } else if (send.getTerm(1).toString().equals("askAll") && content.isList()) { // adds source in each answer if possible
-                    ListTerm tail = new ListTermImpl();
+                    List<Term> answers = new ArrayList<Term>();
                     for (Term t: ((ListTerm)content)) {
-                        t = add_nested_source.addAnnotToList(t, new Atom(m.getSender()));
-                        tail.append(t);
+                        answers.add(add_nested_source.addAnnotToList(t, ASSyntax.createAtom(m.getSender())));
                     }
-                    content = tail;
+                    content = new ArrayListTerm(answers);
                 }
 
                 // test the case of sync ask with many receivers
@@ -352,11 +353,11 @@ public class TransitionSystem {
                     boolean added = false;
                     if (!setts.isSync() && !ag.getPL().hasUserKqmlReceivedPlans() && content.isLiteral() && !content.isList()) { // optimisation to jump kqmlPlans
                         if (m.getIlForce().equals("achieve") ) {
-                            content = add_nested_source.addAnnotToList(content, new Atom(sender));
+                            content = add_nested_source.addAnnotToList(content, ASSyntax.createAtom(sender));
                             C.addEvent(new Event(new Trigger(TEOperator.add, TEType.achieve, (Literal)content), Intention.EmptyInt));
                             added = true;
                         } else if (m.getIlForce().equals("tell") ) {
-                            content = add_nested_source.addAnnotToList(content, new Atom(sender));
+                            content = add_nested_source.addAnnotToList(content, ASSyntax.createAtom(sender));
                             getAg().addBel((Literal)content);
                             added = true;
                         }
@@ -364,8 +365,8 @@ public class TransitionSystem {
 
                     if (!added) {
                         Literal received = new LiteralImpl(kqmlReceivedFunctor).addTerms(
-                            new Atom(sender),
-                            new Atom(m.getIlForce()),
+                            ASSyntax.createAtom(sender),
+                            ASSyntax.createAtom(m.getIlForce()),
                             content,
                             new Atom(m.getMsgId()));
 
@@ -1087,38 +1088,46 @@ public class TransitionSystem {
     }
 
     public List<Option> applicablePlans(List<Option> rp) throws JasonException {
-        synchronized (C.syncApPlanSense) {
-            List<Option> ap = null;
-            if (rp != null) {
-                //ap = new ApplPlanTimeOut().get(rp);
+        if (ag.getBB().supportsConcurrentQueries()) { // the BB does not need sense to be blocked while contexts are evaluated
+            return applicablePlansNoSync(rp);
+        } else {
+            synchronized (C.syncApPlanSense) {
+                return applicablePlansNoSync(rp);
+            }
+        }
+    }
 
-                for (Option opt: rp) {
-                    LogicalFormula context = opt.getPlan().getContext();
-                    if (context == null) { // context is true
-                        if (ap == null) ap = new LinkedList<Option>();
-                        ap.add(opt);
-                    } else {
-                        boolean allUnifs = opt.getPlan().isAllUnifs();
-                        Iterator<Unifier> r = context.logicalConsequence(ag, opt.getUnifier());
-                        if (r != null) {
-                            while (r.hasNext()) {
-                                opt.setUnifier(r.next());
-
-                                if (ap == null) ap = new LinkedList<Option>();
-                                ap.add(opt);
-
-                                if (!allUnifs) break; // returns only the first unification
-                                if (r.hasNext()) {
-                                    // create a new option for the next loop step
-                                    opt = new Option(opt.getPlan(), null);
-                                }
+    private List<Option> applicablePlansNoSync(List<Option> rp) throws JasonException {
+        List<Option> ap = null;
+        if (rp != null) {
+            //ap = new ApplPlanTimeOut().get(rp);
+
+            for (Option opt: rp) {
+                LogicalFormula context = opt.getPlan().getContext();
+                if (context == null) { // context is true
+                    if (ap == null) ap = new LinkedList<Option>();
+                    ap.add(opt);
+                } else {
+                    boolean allUnifs = opt.getPlan().isAllUnifs();
+                    Iterator<Unifier> r = context.logicalConsequence(ag, opt.getUnifier());
+                    if (r != null) {
+                        while (r.hasNext()) {
+                            opt.setUnifier(r.next());
+
+                            if (ap == null) ap = new LinkedList<Option>();
+                            ap.add(opt);
+
+                            if (!allUnifs) break; // returns only the first unification
+                            if (r.hasNext()) {
+                                // create a new option for the next loop step
+                                opt = new Option(opt.getPlan(), null);
                             }
                         }
                     }
                 }
             }
-            return ap;
         }
+        return ap;
     }
 
     public void updateEvents(List<Literal>[] result, Intention focus) {
@@ -1413,6 +1422,22 @@ public class TransitionSystem {
         return !C.hasIntention() && !C.hasFeedbackAction() && C.getSelectedIntention() == null && getUserAgArch().canSleep();
     }
 
+    /** returns true if there is an event in C.E not produced by the idle intention */
+    private boolean hasEventNotFromSleeping() {
+        int nbSleepingEvts = 0;
+        for (Event e: C.getEvents(PlanLibrary.TE_JAG_SLEEPING, null)) { // only the events that may be jag_sleeping
+            Intention i = e.getIntention();
+            if ( !e.getTrigger().equals(PlanLibrary.TE_JAG_SLEEPING)
+                    ||
+                    (i != null && i.hasTrigger(PlanLibrary.TE_JAG_SLEEPING, new Unifier()))
+               ) {
+                return true;
+            }
+            nbSleepingEvts++;
+        }
+        return C.getEvents().size() > nbSleepingEvts; // other events
+    }
+
     /**
      * Schedule a task to be executed in the begin of the next reasoning cycle.
      * It is used mostly to change the C only by the TS thread (e.g. by .wait)
@@ -1435,6 +1460,18 @@ public class TransitionSystem {
         act();
     }
 
+    /** gets the agent's perception from the architecture and updates the BB accordingly */
+    private void updatePercepts() {
+        AgArch arch = getUserAgArch();
+        if (arch.isIncrementalPerception()) {
+            PerceptsChanges changes = arch.perceiveChanges();
+            if (changes != null)
+                ag.buf(changes.getAdded(), changes.getRemoved());
+        } else {
+            ag.buf(arch.perceive());
+        }
+    }
+
     public void sense() {
         try {
             if (logger.isLoggable(Level.FINE)) logger.fine("Start new reasoning cycle");
@@ -1444,8 +1481,12 @@ public class TransitionSystem {
 
             if (nrcslbr >= setts.nrcbp()) {
                 nrcslbr = 0;
-                synchronized (C.syncApPlanSense) {
-                    ag.buf(getUserAgArch().perceive());
+                if (ag.getBB().supportsConcurrentQueries()) {
+                    updatePercepts();
+                } else {
+                    synchronized (C.syncApPlanSense) {
+                        updatePercepts();
+                    }
                 }
                 getUserAgArch().checkMail();
             }
@@ -1463,18 +1504,8 @@ public class TransitionSystem {
             } else if (sleepingEvt) { // code to turn idleEvt false again
                 if (C.hasMsg()) { // the agent has messages
                     sleepingEvt = false;
-                } else if (C.hasEvent()) {
-                    // check if there is an event in C.E not produced by idle intention
-                    for (Event e: C.getEvents()) {
-                        Intention i = e.getIntention();
-                        if ( !e.getTrigger().equals(PlanLibrary.TE_JAG_SLEEPING)
-                                ||
-                                (i != null && i.hasTrigger(PlanLibrary.TE_JAG_SLEEPING, new Unifier()))
-                           ) {
-                            sleepingEvt = false;
-                            break;
-                        }
-                    }
+                } else if (C.hasEvent() && hasEventNotFromSleeping()) {
+                    sleepingEvt = false;
                 }
                 if (!sleepingEvt && ag.pl.getCandidatePlans(PlanLibrary.TE_JAG_AWAKING) != null) {
                     C.addExternalEv(PlanLibrary.TE_JAG_AWAKING);
@@ -1503,10 +1534,19 @@ public class TransitionSystem {
                 r = taskForBeginOfCycle.poll();
             }
 
-            stepDeliberate = State.SelEv;
-            do {
-                applySemanticRuleDeliberate();
-            } while (stepDeliberate != State.ProcAct && getUserAgArch().isRunning());
+            // handle up to eventsPerCycle events in this deliberation (the tasks above and
+            // the checks of the infrastructure are done once for all of them)
+            int nbEvts = setts.eventsPerCycle();
+            while (true) {
+                stepDeliberate = State.SelEv;
+                do {
+                    applySemanticRuleDeliberate();
+                } while (stepDeliberate != State.ProcAct && getUserAgArch().isRunning());
+
+                if (--nbEvts <= 0 || C.getSelectedEvent() == null || !C.hasEvent() || C.hasAtomicIntention() || !getUserAgArch().isRunning())
+                    break;
+                C.resetDeliberate();
+            }
 
         } catch (Exception e) {
             logger.log(Level.SEVERE, "*** ERROR in the transition system (deliberate). "+conf.C+"\nCreating a new C!", e);
@@ -1580,7 +1620,7 @@ public class TransitionSystem {
 
              if (nrcslbr >= setts.nrcbp()) {
                  nrcslbr = 0;
-                 ag.buf(getUserAgArch().perceive());
+                 updatePercepts();
                  getUserAgArch().checkMail();
              }
              nrcslbr++; // counting number of cycles since last belief revision
@@ -1597,18 +1637,8 @@ public class TransitionSystem {
              } else if (sleepingEvt) { // code to turn idleEvt false again
                  if (C.hasMsg()) { // the agent has messages
                      sleepingEvt = false;
-                 } else if (C.hasEvent()) {
-                     // check if there is an event in C.E not produced by idle intention
-                     for (Event e: C.getEvents()) {
-                         Intention i = e.getIntention();
-                         if ( !e.getTrigger().equals(PlanLibrary.TE_JAG_SLEEPING)
-                              ||
-                              (i != null && i.hasTrigger(PlanLibrary.TE_JAG_SLEEPING, new Unifier()))
-                            ) {
-                             sleepingEvt = false;
-                             break;
-                         }
-                     }
+                 } else if (C.hasEvent() && hasEventNotFromSleeping()) {
+                     sleepingEvt = false;
                  }
                  if (!sleepingEvt && ag.pl.getCandidatePlans(PlanLibrary.TE_JAG_AWAKING) != null) {
                      C.addExternalEv(PlanLibrary.TE_JAG_AWAKING);
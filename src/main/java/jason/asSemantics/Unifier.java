@@ -14,6 +14,7 @@ import jason.asSyntax.UnnamedVar;
 import jason.asSyntax.VarTerm;
 import jason.asSyntax.directives.NameSpace;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -29,6 +30,21 @@ public class Unifier implements Cloneable, Iterable<VarTerm> {
 
     protected Map<VarTerm, Term> function = new HashMap<VarTerm, Term>();
 
+    // trail of changes in the function (var and its previous value), recorded while there are marks (see mark/undo)
+    private VarTerm[] trailVars = null;
+    private Term[]    trailVals = null;
+    private int       trailSize = 0;
+    private int       marks     = 0;
+
+    public Unifier() {
+    }
+
+    /** creates a unifier that stores the values of the vars of some plan in slots (see VarSlots) */
+    public Unifier(VarSlots slots) {
+        if (slots != null && slots.size() > 0)
+            function = new VarSlots.Bindings(slots);
+    }
+
     /**
      * gets the value for a Var, if it is unified with another var, gets this
      * other's value
@@ -38,7 +54,68 @@ public class Unifier implements Cloneable, Iterable<VarTerm> {
     }
 
     public Term remove(VarTerm v) {
-        return function.remove(v);
+        Term old = function.remove(v);
+        if (marks > 0 && old != null)
+            trail(v, old);
+        return old;
+    }
+
+    /** changes the value of v in the function (recording the change in the trail) */
+    private void put(VarTerm v, Term vl) {
+        Term old = function.put(v, vl);
+        if (marks > 0)
+            trail(v, old);
+    }
+
+    private void trail(VarTerm v, Term old) {
+        if (trailVars == null) {
+            trailVars = new VarTerm[8];
+            trailVals = new Term[8];
+        } else if (trailSize == trailVars.length) {
+            trailVars = Arrays.copyOf(trailVars, trailSize * 2);
+            trailVals = Arrays.copyOf(trailVals, trailSize * 2);
+        }
+        trailVars[trailSize] = v;
+        trailVals[trailSize] = old;
+        trailSize++;
+    }
+
+    /**
+     * Starts recording the changes in this unifier, so that they can be undone
+     * (by undo) without copying the unifier. Every mark has to be followed by
+     * undo or commit (in the reverse order of the marks).
+     *
+     * @return the mark that identifies the current state of the unifier
+     */
+    public int mark() {
+        marks++;
+        return trailSize;
+    }
+
+    /** Undoes all changes made in the unifier after the mark */
+    public void undo(int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            VarTerm v = trailVars[trailSize];
+            Term  old = trailVals[trailSize];
+            if (old == null)
+                function.remove(v);
+            else
+                function.put(v, old);
+            trailVars[trailSize] = null;
+            trailVals[trailSize] = null;
+        }
+        marks--;
+    }
+
+    /** Keeps the changes made in the unifier after the mark */
+    public void commit(int mark) {
+        marks--;
+        if (marks == 0 && trailSize > 0) {
+            Arrays.fill(trailVars, 0, trailSize, null);
+            Arrays.fill(trailVals, 0, trailSize, null);
+            trailSize = 0;
+        }
     }
 
     public Iterator<VarTerm> iterator() {
@@ -96,19 +173,24 @@ public class Unifier implements Cloneable, Iterable<VarTerm> {
           u.unifier( a(X,10), a(1,1) );
         does not change u, i.e., u = {}
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public boolean unifies(Term t1, Term t2) {
-        Map cfunction = cloneFunction();
-        if (unifiesNoUndo(t1,t2)) {
-            return true;
-        } else {
-            function = cfunction;
-            return false;
+        int m = mark();
+        boolean ok = false;
+        try {
+            ok = unifiesNoUndo(t1,t2);
+            return ok;
+        } finally {
+            if (ok)
+                commit(m);
+            else
+                undo(m); // also if unifiesNoUndo throws an exception
         }
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
     private Map<VarTerm, Term> cloneFunction() {
+        if (function instanceof VarSlots.Bindings)
+            return ((VarSlots.Bindings)function).copy();
         return (Map<VarTerm, Term>)((HashMap)function).clone();
         //return new HashMap<VarTerm, Term>(function);
     }
@@ -147,15 +229,15 @@ public class Unifier implements Cloneable, Iterable<VarTerm> {
             try {
                 return unifiesNoUndo(new LiteralImpl((Literal)t1g), new LiteralImpl((Literal)t2g));
             } finally {
-                function.put(v1, t1g);
-                function.put(v2, t1g);
+                put(v1, t1g);
+                put(v2, t1g);
             }
 
         } else {
             if (t1g.isCyclicTerm() && get(t1g.getCyclicVar()) == null) // reintroduce cycles in the unifier
-                function.put(t1g.getCyclicVar(), t1g);
+                put(t1g.getCyclicVar(), t1g);
             if (t2g.isCyclicTerm() && get(t2g.getCyclicVar()) == null)
-                function.put(t2g.getCyclicVar(), t2g);
+                put(t2g.getCyclicVar(), t2g);
         }
 
         // unify as Term
@@ -299,7 +381,7 @@ public class Unifier implements Cloneable, Iterable<VarTerm> {
             vl = function.get(v);
         }
         if (first != v) {
-            function.put(first, v); // optimise map
+            put(first, v); // optimise map
         }
         return v;
     }
@@ -310,9 +392,9 @@ public class Unifier implements Cloneable, Iterable<VarTerm> {
         final int comp = vt1.compareTo(vt2);
         //System.out.println(vt1+"="+vt2+" ==> "+getVarForUnifier(vt1) +"="+ getVarForUnifier(vt2)+" in "+this+" cmp="+comp);
         if (comp < 0) {
-            function.put(vt1, vt2);
+            put(vt1, vt2);
         } else if (comp > 0) {
-            function.put(vt2, vt1);
+            put(vt2, vt1);
         } // if they are the same (comp == 0), do not bind
     }
 
@@ -340,7 +422,7 @@ public class Unifier implements Cloneable, Iterable<VarTerm> {
             vl = new CyclicTerm((Literal)vl, (VarTerm)vt.clone());
         }
 
-        function.put(getVarForUnifier(vt), vl);
+        put(getVarForUnifier(vt), vl);
         return true;
     }
 
@@ -351,6 +433,9 @@ public class Unifier implements Cloneable, Iterable<VarTerm> {
     }
 
     public void clear() {
+        if (marks > 0)
+            for (Map.Entry<VarTerm, Term> e: function.entrySet())
+                trail(e.getKey(), e.getValue());
         function.clear();
     }
 
@@ -383,7 +468,7 @@ public class Unifier implements Cloneable, Iterable<VarTerm> {
             if (current != null && (current.isVar() || kValue.isVar())) { // current unifier has the new var
                 unifies(kValue, current);
             } else {
-                function.put( (VarTerm)k.clone(), kValue.clone());
+                put( (VarTerm)k.clone(), kValue.clone());
             }
         }
     }
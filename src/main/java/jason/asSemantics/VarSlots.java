@@ -0,0 +1,213 @@
+package jason.asSemantics;
+
+import jason.asSyntax.Plan;
+import jason.asSyntax.Term;
+import jason.asSyntax.VarTerm;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The (named) variables of a plan numbered into dense slots. It is computed when
+ * the plan is added into the plan library and used by the unifiers of the plan
+ * (see Plan.isRelevant) to store the values of the vars in arrays
+ * instead of hash maps.
+ *
+ * <p>The slot of a var is cached in the VarTerm, so that, after the first
+ * lookup, the vars of the plan body are found by their position.
+ * Vars that are not in the plan (e.g. vars coming from the event) are stored
+ * in a normal hash map.
+ *
+ * @see Plan#numberVars()
+ */
+public final class VarSlots {
+
+    private final String[]             names;
+    private final Map<String, Integer> index = new HashMap<String, Integer>();
+
+    public VarSlots(Collection<VarTerm> vars) {
+        for (VarTerm v: vars)
+            if (!v.isUnnamedVar() && !index.containsKey(v.getFunctor()))
+                index.put(v.getFunctor(), index.size());
+        names = new String[index.size()];
+        for (String n: index.keySet())
+            names[index.get(n)] = n;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /** returns the slot of the var, or -1 if it is not a var of the plan */
+    public int slotOf(VarTerm v) {
+        int s = v.getSlot();
+        if (s >= 0 && s < names.length && names[s].equals(v.getFunctor()))
+            return s;
+        if (v.isUnnamedVar())
+            return -1;
+        Integer i = index.get(v.getFunctor());
+        if (i == null)
+            return -1;
+        v.setSlot(i); // cache for the next lookups
+        return i;
+    }
+
+    @Override
+    public String toString() {
+        return index.keySet().toString();
+    }
+
+    /** the function (var -> value) of a unifier whose plan vars are stored by slot */
+    static final class Bindings extends AbstractMap<VarTerm, Term> {
+        private final VarSlots  slots;
+        private final VarTerm[] keys;
+        private final Term[]    values;
+        private int             nbSlots = 0; // number of slots with values
+        private Map<VarTerm, Term> others = null; // values of vars without slots
+
+        Bindings(VarSlots slots) {
+            this.slots  = slots;
+            this.keys   = new VarTerm[slots.size()];
+            this.values = new Term[slots.size()];
+        }
+
+        private Bindings(Bindings b) {
+            slots   = b.slots;
+            keys    = b.keys.clone();
+            values  = b.values.clone();
+            nbSlots = b.nbSlots;
+            if (b.others != null && !b.others.isEmpty())
+                others = new HashMap<VarTerm, Term>(b.others);
+        }
+
+        Bindings copy() {
+            return new Bindings(this);
+        }
+
+        private int slotOf(Object k) {
+            return k instanceof VarTerm ? slots.slotOf((VarTerm)k) : -1;
+        }
+
+        @Override
+        public Term get(Object k) {
+            int s = slotOf(k);
+            if (s >= 0)
+                return values[s];
+            return others == null ? null : others.get(k);
+        }
+
+        @Override
+        public boolean containsKey(Object k) {
+            return get(k) != null;
+        }
+
+        @Override
+        public Term put(VarTerm k, Term vl) {
+            int s = slotOf(k);
+            if (s >= 0) {
+                Term old = values[s];
+                keys[s]   = k;
+                values[s] = vl;
+                if (old == null)
+                    nbSlots++;
+                return old;
+            }
+            if (others == null)
+                others = new HashMap<VarTerm, Term>();
+            return others.put(k, vl);
+        }
+
+        @Override
+        public Term remove(Object k) {
+            int s = slotOf(k);
+            if (s >= 0) {
+                Term old = values[s];
+                if (old != null)
+                    removeSlot(s);
+                return old;
+            }
+            return others == null ? null : others.remove(k);
+        }
+
+        private void removeSlot(int s) {
+            keys[s]   = null;
+            values[s] = null;
+            nbSlots--;
+        }
+
+        @Override
+        public int size() {
+            return nbSlots + (others == null ? 0 : others.size());
+        }
+
+        @Override
+        public void clear() {
+            for (int s = 0; s < values.length; s++) {
+                keys[s]   = null;
+                values[s] = null;
+            }
+            nbSlots = 0;
+            others  = null;
+        }
+
+        @Override
+        public Set<Map.Entry<VarTerm, Term>> entrySet() {
+            return new AbstractSet<Map.Entry<VarTerm, Term>>() {
+                public int size() {
+                    return Bindings.this.size();
+                }
+
+                public Iterator<Map.Entry<VarTerm, Term>> iterator() {
+                    return new Iterator<Map.Entry<VarTerm, Term>>() {
+                        int s    = nextSlot(0);
+                        int last = -1;
+                        Iterator<Map.Entry<VarTerm, Term>> io = null;
+
+                        int nextSlot(int i) {
+                            while (i < values.length && values[i] == null)
+                                i++;
+                            return i;
+                        }
+
+                        public boolean hasNext() {
+                            if (s < values.length)
+                                return true;
+                            if (io == null && others != null)
+                                io = others.entrySet().iterator();
+                            return io != null && io.hasNext();
+                        }
+
+                        public Map.Entry<VarTerm, Term> next() {
+                            if (!hasNext())
+                                throw new NoSuchElementException();
+                            if (s < values.length) {
+                                last = s;
+                                s    = nextSlot(s+1);
+                                return new AbstractMap.SimpleImmutableEntry<VarTerm, Term>(keys[last], values[last]);
+                            }
+                            last = -1;
+                            return io.next();
+                        }
+
+                        public void remove() {
+                            if (last >= 0) {
+                                removeSlot(last);
+                                last = -1;
+                            } else if (io != null) {
+                                io.remove();
+                            } else {
+                                throw new IllegalStateException();
+                            }
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -110,10 +110,10 @@ public class ASSyntax {
      * class for examples of use.
      */
     public static Literal createLiteral(String functor, Term... terms) {
-        return new LiteralImpl(functor).addTerms(terms);
+        return new LiteralImpl(SymbolTable.intern(functor)).addTerms(terms);
     }
     public static Literal createLiteral(Atom namespace, String functor, Term... terms) {
-        return new LiteralImpl(namespace, Literal.LPos, functor).addTerms(terms);
+        return new LiteralImpl(namespace, Literal.LPos, SymbolTable.intern(functor)).addTerms(terms);
     }
 
     /**
@@ -123,7 +123,7 @@ public class ASSyntax {
      * class for examples of use.
      */
     public static Literal createLiteral(boolean positive, String functor, Term... terms) {
-        return new LiteralImpl(positive, functor).addTerms(terms);
+        return new LiteralImpl(positive, SymbolTable.intern(functor)).addTerms(terms);
     }
 
     /**
@@ -133,7 +133,7 @@ public class ASSyntax {
      * class for examples of use.
      */
     public static Literal createLiteral(Atom namespace, boolean positive, String functor, Term... terms) {
-        return new LiteralImpl(namespace, positive, functor).addTerms(terms);
+        return new LiteralImpl(namespace, positive, SymbolTable.intern(functor)).addTerms(terms);
     }
 
 
@@ -143,17 +143,17 @@ public class ASSyntax {
      */
     public static Structure createStructure(String functor, Term... terms) {
         int size = (terms == null || terms.length == 0 ? 3 : terms.length);
-        return (Structure)new Structure(functor, size).addTerms(terms);
+        return (Structure)new Structure(SymbolTable.intern(functor), size).addTerms(terms);
     }
 
     /** creates a new Atom term (an atom is a structure with 0-arity) */
     public static Atom createAtom(String functor) {
-        return new Atom(functor);
+        return new Atom(SymbolTable.intern(functor));
     }
 
     /** creates a new number term */
     public static NumberTerm createNumber(double vl) {
-        return new NumberTermImpl(vl);
+        return NumberTermImpl.valueOf(vl);
     }
 
     /** creates a new string term */
@@ -101,6 +101,8 @@ public class ArithExpr extends ArithFunctionTerm implements NumberTerm {
 
     private ArithmeticOp  op = ArithmeticOp.none;
 
+    private transient CompiledExpr compiled = null; // see compile()
+
     public ArithExpr(NumberTerm t1, ArithmeticOp oper, NumberTerm t2) {
         super(oper.toString(),2);
         addTerm(t1);
@@ -121,7 +123,8 @@ public class ArithExpr extends ArithFunctionTerm implements NumberTerm {
 
     private ArithExpr(ArithExpr ae) { // for clone
         super(ae);
-        op = ae.op;
+        op       = ae.op;
+        compiled = ae.compiled; // the clone has the same vars
     }
 
     /** returns some Term that can be evaluated as Number */
@@ -142,20 +145,54 @@ public class ArithExpr extends ArithFunctionTerm implements NumberTerm {
         }
     }
 
+    /**
+     * evaluates a numeric term (a number, a var, or an arithmetic expression) reading the
+     * values of vars from the unifier (u may be null). Numbers, vars and arithmetic expressions
+     * are evaluated without creating terms (other terms, like functions, are evaluated by capply).
+     */
+    public static double solve(Term t, Unifier u) throws NoValueException {
+        if (t instanceof NumberTermImpl)
+            return ((NumberTermImpl)t).solve();
+        if (t instanceof ArithExpr)
+            return ((ArithExpr)t).solve(u);
+        if (t.isVar()) {
+            Term vl = u == null ? null : u.get((VarTerm)t);
+            if (vl == null)
+                throw new NoValueException("Error evaluating "+t+". It is not ground!");
+            return solve(vl, u);
+        }
+        return ((NumberTerm)t.capply(u)).solve();
+    }
+
+    /** evaluates this expression with the values of vars in u, without creating terms */
+    public double solve(Unifier u) throws NoValueException {
+        CompiledExpr c = compiled;
+        if (c == null)
+            c = compile();
+        return c.eval(u);
+    }
+
+    /**
+     * compiles this expression, so that the next evaluations (by solve or capply) do not
+     * walk its terms. It is done in the first evaluation or when the plan is added
+     * into the plan library. Changes in the terms of the expression discard the compiled form.
+     */
+    CompiledExpr compile() {
+        CompiledExpr c = CompiledExpr.compile(this);
+        compiled = c;
+        return c;
+    }
+
+    @Override
+    public void resetHashCodeCache() {
+        super.resetHashCodeCache();
+        compiled = null; // the terms have changed
+    }
+
     @Override
     public Term capply(Unifier u) {
         try {
-            double l = ((NumberTerm)getTerm(0).capply(u)).solve();
-            if (isUnary()) {
-                if (op == ArithmeticOp.minus) {
-                    value = new NumberTermImpl(-l);
-                } else {
-                    value = new NumberTermImpl(l);
-                }
-            } else {
-                double r = ((NumberTerm)getTerm(1).capply(u)).solve();
-                value = new NumberTermImpl(op.eval(l, r));
-            }
+            value = NumberTermImpl.valueOf(solve(u));
             return value;
         } catch (ClassCastException e) {
             logger.warning("The value of "+this+" is not a number! Unifier = "+u+". Code: "+getSrcInfo());
@@ -80,6 +80,10 @@ public class ArithFunctionTerm extends Structure implements NumberTerm {
         return agent;
     }
 
+    public ArithFunction getFunction() {
+        return function;
+    }
+
     /** computes the value for this arithmetic function (as defined in the NumberTerm interface) */
     @Override
     public Term capply(Unifier u) {
@@ -89,7 +93,7 @@ public class ArithFunctionTerm extends Structure implements NumberTerm {
             Term v = super.capply(u);
             if (function.allowUngroundTerms() || v.isGround()) {
                 try {
-                    value = new NumberTermImpl(function.evaluate((agent == null ? null : agent.getTS()), ((Literal)v).getTermsArray()));
+                    value = NumberTermImpl.valueOf(function.evaluate((agent == null ? null : agent.getTS()), ((Literal)v).getTermsArray()));
                     return value;
                 } catch (NoValueException e) {
                     // ignore and return this;
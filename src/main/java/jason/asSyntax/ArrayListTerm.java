@@ -0,0 +1,840 @@
+package jason.asSyntax;
+
+import jason.asSemantics.Agent;
+import jason.asSemantics.Unifier;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+
+/**
+ * Represents a list (as ListTermImpl) whose elements are stored in an
+ * array instead of a chain of nodes, e.g. [a,b,c] or [a,b|T].
+ *
+ * <p>It is used for the (usually large and ground) lists produced by
+ * internal actions like .findall and .setof: size, get(i) and getLast
+ * are O(1) and it uses less memory than a chain of ListTermImpl.
+ * The next of the list (getNext, getTerm(1)) is a view of the same array
+ * starting at the next element, so that the list is handled by the unifier
+ * as any other list.
+ *
+ * <p>As in a chain of ListTermImpl, terms added in the end of the list (append,
+ * concat, add(Term), setNext of the last element, ...) and changes in the
+ * elements (set, setTerm) are seen by all the views of the array, so a list
+ * can be built by <code>last = last.append(t)</code> and closed by
+ * <code>last.setNext(...)</code>. Other changes (insert, remove, add(int,Term),
+ * setNext of other elements, ...) are done in a copy of the array owned by the
+ * changed list.
+ */
+public final class ArrayListTerm extends Structure implements ListTerm {
+
+    private static final long serialVersionUID = 1L;
+    private static Logger logger = Logger.getLogger(ArrayListTerm.class.getName());
+
+    /** the array of a list, shared by the list and its views */
+    private static final class Elems implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        Term[]  a;
+        int     to;              // the elements are a[..to-1]
+        VarTerm tail;
+        boolean shared  = false; // whether it is used by several lists (views)
+        boolean readOnly = false; // whether the lists can be changed (see SharedLiteral)
+        int     changes = 0;     // number of changes, used to check the hash code cached by the lists
+
+        Elems(Term[] a, int to, VarTerm tail) {
+            this.a    = a;
+            this.to   = to;
+            this.tail = tail;
+        }
+    }
+
+    private Elems e;           // the elements of this list are e.a[from..e.to-1]
+    private int   from;
+    private int   hashChanges; // e.changes when the hash code was cached
+
+    public ArrayListTerm() {
+        this(new Term[4], 0, null);
+    }
+
+    /** creates a list with the terms of the collection (the terms are not cloned) */
+    public ArrayListTerm(Collection<? extends Term> c) {
+        this(c.toArray(new Term[c.size()]), c.size(), null);
+    }
+
+    private ArrayListTerm(Term[] a, int to, VarTerm tail) {
+        this(new Elems(a, to, tail), 0);
+    }
+
+    private ArrayListTerm(Elems e, int from) {
+        super(ListTermImpl.LIST_FUNCTOR, 0);
+        this.e    = e;
+        this.from = from;
+    }
+
+    /** returns a list that shares the array with this one, starting at f */
+    private ArrayListTerm view(int f) {
+        if (f == from)
+            return this;
+        e.shared = true;
+        return new ArrayListTerm(e, f);
+    }
+
+    /** ensures that the array has room for n elements of this list */
+    private void room(int n) {
+        if (from + n > e.a.length)
+            e.a = Arrays.copyOf(e.a, Math.max(4, from + n + n/2));
+    }
+
+    /** ensures that the array is owned by this list and has room for n elements */
+    private void own(int n) {
+        if (e.shared) {
+            int s = size();
+            int c = Math.max(n, s);
+            Term[] a = new Term[Math.max(4, c + c/2)];
+            System.arraycopy(e.a, from, a, 0, s);
+            e    = new Elems(a, s, e.tail);
+            from = 0;
+        } else {
+            room(n);
+        }
+    }
+
+    /** makes this list (and its views) read only: the methods that change it throw UnsupportedOperationException */
+    void setReadOnly() {
+        e.readOnly = true;
+    }
+
+    private void checkWritable() {
+        if (e.readOnly)
+            throw new UnsupportedOperationException("this list can not be changed");
+    }
+
+    private void changed() {
+        e.changes++;
+        resetHashCodeCache();
+    }
+
+    /** make a hard copy of the terms */
+    public ListTerm clone() {
+        int    s = size();
+        Term[] a = new Term[Math.max(1, s)];
+        for (int i = 0; i < s; i++)
+            a[i] = e.a[from+i].clone();
+        VarTerm tail = getTail();
+        ArrayListTerm t = new ArrayListTerm(a, s, tail == null ? null : (VarTerm)tail.clone());
+        if (hashChanges == e.changes)
+            t.hashCodeCache = this.hashCodeCache;
+        return t;
+    }
+
+    /** make a hard copy of the terms */
+    public ListTerm cloneLT() {
+        return clone();
+    }
+
+    /** make a shallow copy of the list (terms are not cloned, only the structure) */
+    public ListTerm cloneLTShallow() {
+        return new ArrayListTerm(Arrays.copyOfRange(e.a, from, Math.max(e.to, from+1)), size(), getTail());
+    }
+
+    /** make a copy of the terms (ground terms are shared) */
+    @Override
+    public Term capply(Unifier u) {
+        int    s = size();
+        Term[] a = new Term[Math.max(1, s)];
+        for (int i = 0; i < s; i++) {
+            Term ti = e.a[from+i];
+            a[i] = Structure.isGroundData(ti) ? ti : ti.capply(u);
+        }
+        ArrayListTerm t = new ArrayListTerm(a, s, null);
+        VarTerm tail = getTail();
+        if (tail != null) {
+            Term vl = tail.capply(u);
+            if (vl.isVar()) {
+                t.e.tail = (VarTerm)vl;
+            } else if (vl.isList()) { // the tail has a list as value
+                t.concat((ListTerm)vl);
+            } else {                  // not a list (as in a chain of ListTermImpl, it is placed as the next of the last element)
+                ListTerm r = new ListTermImpl();
+                ListTerm last = r;
+                for (int i = 0; i < s; i++)
+                    last = last.append(a[i]);
+                last.setNext(vl);
+                return r;
+            }
+        }
+        return t;
+    }
+
+    @Override
+    public boolean equals(Object t) {
+        if (t == null) return false;
+        if (t == this) return true;
+
+        if (t instanceof Term &&  ((Term)t).isVar() ) return false; // unground var is not equals a list
+        if (t instanceof ListTerm) {
+            ListTerm o = (ListTerm)t;
+            for (int i = from; i < e.to; i++) {
+                if (o == null || o.isVar() || o.isEmpty())
+                    return false;
+                if (!e.a[i].equals(o.getTerm()))
+                    return false;
+                o = o.getNext();
+            }
+            VarTerm tail = getTail();
+            if (tail != null)
+                return tail.equals(o);
+            return o != null && !o.isVar() && o.isEmpty();
+        }
+        return false;
+    }
+
+    /** the hash code is cached while the array is not changed (by this list or its views) */
+    @Override
+    public int hashCode() {
+        if (hashCodeCache == 0 || hashChanges != e.changes) {
+            hashChanges   = e.changes;
+            hashCodeCache = calcHashCode();
+        }
+        return hashCodeCache;
+    }
+
+    @Override
+    public int calcHashCode() {
+        // the same code as a chain of ListTermImpl
+        int code = 37 * size();
+        for (int i = from; i < e.to; i++)
+            code += e.a[i].hashCode();
+        VarTerm tail = getTail();
+        if (tail != null)
+            code += tail.hashCode();
+        else
+            code += 37;
+        return code;
+    }
+
+    @Override
+    public int compareTo(Term o) {
+        if (o instanceof VarTerm)
+            return o.compareTo(this) * -1;
+        if ((o instanceof NumberTerm))
+            return 1;
+        if (o instanceof StringTerm)
+            return 1;
+        return super.compareTo(o);
+    }
+
+    public void setTerm(Term t) {
+        checkWritable();
+        if (isEmpty()) {
+            append(t);
+        } else {
+            e.a[from] = t;
+            changed();
+        }
+    }
+
+    /** gets the term of this ListTerm */
+    public Term getTerm() {
+        return isEmpty() ? null : e.a[from];
+    }
+
+    public void setNext(Term l) {
+        checkWritable();
+        if (isEmpty())
+            return;
+        // gets the terms of l before changing this list (l may be a view of this list)
+        Term[]  ts   = null;
+        VarTerm tail = null;
+        if (l != null) {
+            if (l.isVar()) {
+                tail = (VarTerm)l;
+            } else if (l.isList()) {
+                ts   = ((ListTerm)l).toArray(new Term[0]);
+                tail = ((ListTerm)l).getTail();
+            }
+        }
+        if (from+1 < e.to) { // removes the next elements
+            if (e.shared) {
+                Term[] a = new Term[Math.max(4, ts == null ? 1 : ts.length + 1)];
+                a[0] = e.a[from];
+                e    = new Elems(a, 1, null);
+                from = 0;
+            } else {
+                Arrays.fill(e.a, from+1, e.to, null);
+                e.to = from+1;
+            }
+        }
+        if (ts != null) {
+            room(1 + ts.length);
+            System.arraycopy(ts, 0, e.a, e.to, ts.length);
+            e.to += ts.length;
+        }
+        e.tail = tail;
+        changed();
+    }
+
+    public ListTerm getNext() {
+        if (isEmpty())
+            return null;
+        if (isTail())
+            return e.tail;
+        return view(from+1);
+    }
+
+    // for unifier compatibility
+    @Override
+    public int getArity() {
+        return isEmpty() ? 0 : 2; // term and next
+    }
+
+    // for unifier compatibility
+    @Override
+    public Term getTerm(int i) {
+        if (i == 0) return getTerm();
+        if (i == 1) return getNext();
+        return null;
+    }
+
+    // for unifier compatibility
+    @Override
+    public void setTerm(int i, Term t) {
+        if (i == 0) setTerm(t);
+        if (i == 1) setNext(t);
+    }
+
+    /** return the this ListTerm elements (0=Term, 1=ListTerm) */
+    public List<Term> getTerms() {
+        logger.warning("Do not use getTerms in lists!");
+        List<Term> l = new ArrayList<Term>(2);
+        if (!isEmpty()) {
+            l.add(getTerm());
+            l.add(getNext());
+        }
+        return l;
+    }
+
+    public void addTerm(Term t) {
+        logger.warning("Do not use addTerm in lists! Use add(Term).");
+    }
+
+    public int size() {
+        return e.to-from;
+    }
+
+    @Override
+    public boolean isAtom() {
+        return false;
+    }
+
+    @Override
+    public boolean isList() {
+        return true;
+    }
+
+    @Override
+    public boolean isLiteral() {
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return from == e.to;
+    }
+
+    public boolean isEnd() {
+        return isEmpty() || isTail();
+    }
+
+    public boolean isGround() {
+        if (getTail() != null)
+            return false;
+        for (int i = from; i < e.to; i++)
+            if (!e.a[i].isGround())
+                return false;
+        return true;
+    }
+
+    @Override
+    public Iterator<Unifier> logicalConsequence(Agent ag, Unifier un) {
+        logger.log(Level.WARNING, "ArrayListTerm cannot be used for logical consequence!", new Exception());
+        return LogExpr.EMPTY_UNIF_LIST.iterator();
+    }
+
+    public boolean isTail() {
+        return size() == 1 && e.tail != null;
+    }
+
+    /** returns this ListTerm's tail element in case the List has the Tail, otherwise, returns null */
+    public VarTerm getTail() {
+        return isEmpty() ? null : e.tail;
+    }
+
+    /** set the tail of this list */
+    public void setTail(VarTerm v) {
+        checkWritable();
+        e.tail = v;
+        changed();
+    }
+
+    /** get the last ListTerm of this List */
+    public ListTerm getLast() {
+        if (isEmpty())
+            return this;
+        if (e.tail != null)
+            return view(e.to-1);
+        return view(e.to);
+    }
+
+    public ListTerm getPenultimate() {
+        if (isEmpty())
+            return null;
+        return view(e.to-1);
+    }
+
+    public Term removeLast() {
+        checkWritable();
+        if (isEmpty())
+            return null;
+        own(size());
+        Term b = e.a[--e.to];
+        e.a[e.to] = null;
+        e.tail = null;
+        changed();
+        return b;
+    }
+
+    /**
+     * Adds a term in the end of the list
+     * @return the last element of the list (a list with only t, where further terms can be appended), or null if the list has a tail
+     */
+    public ListTerm append(Term t) {
+        if (!add(t))
+            return null;
+        return view(e.to-1);
+    }
+
+    /**
+     * insert a term in the begin of this list
+     * @return the list after the new term
+     */
+    public ListTerm insert(Term t) {
+        checkWritable();
+        own(size()+1);
+        System.arraycopy(e.a, from, e.a, from+1, e.to-from);
+        e.a[from] = t;
+        e.to++;
+        changed();
+        return getNext();
+    }
+
+    /**
+     * Adds a list in the end of this list.
+     * This method do not clone the terms of <i>lt</i>.
+     * @return the last ListTerm of the new list
+     */
+    public ListTerm concat(ListTerm lt) {
+        checkWritable();
+        if (getTail() != null)
+            return null;
+        Term[]  ts   = lt.toArray(new Term[0]); // lt may be a view of this list
+        VarTerm tail = lt.getTail();
+        room(size() + ts.length);
+        System.arraycopy(ts, 0, e.a, e.to, ts.length);
+        e.to  += ts.length;
+        e.tail = tail;
+        changed();
+        return getLast();
+    }
+
+    /**
+     * Creates a new (cloned) list with the same elements of this list, but in the reversed order.
+     * The Tail remains the Tail: reverse([a,b|T]) = [b,a|T].
+     */
+    public ListTerm reverse() {
+        int    s = size();
+        Term[] a = new Term[Math.max(1, s)];
+        for (int i = 0; i < s; i++)
+            a[s-i-1] = e.a[from+i].clone();
+        VarTerm tail = getTail();
+        return new ArrayListTerm(a, s, tail == null ? null : (VarTerm)tail.clone());
+    }
+
+    /** returns a new (cloned) list representing the set resulting of the union of this list and lt. */
+    public ListTerm union(ListTerm lt) {
+        Set<Term> set = new TreeSet<Term>();
+        set.addAll(lt);
+        set.addAll(this);
+        return setToList(set);
+    }
+
+    /** returns a new (cloned) list representing the set resulting of the intersection of this list and lt. */
+    public ListTerm intersection(ListTerm lt) {
+        Set<Term> set = new TreeSet<Term>();
+        set.addAll(lt);
+        set.retainAll(this);
+        return setToList(set);
+    }
+
+    /** returns a new (cloned) list representing the set resulting of the difference of this list and lt. */
+    public ListTerm difference(ListTerm lt) {
+        Set<Term> set = new TreeSet<Term>();
+        set.addAll(this);
+        set.removeAll(lt);
+        return setToList(set);
+    }
+
+    // copy the set to a new list
+    private ListTerm setToList(Set<Term> set) {
+        List<Term> l = new ArrayList<Term>(set.size());
+        for (Term t: set)
+            l.add(t.clone());
+        return new ArrayListTerm(l);
+    }
+
+    /** returns all subsets that take k elements of this list */
+    public Iterator<List<Term>> subSets(int k) {
+        ListTerm l = new ListTermImpl();
+        l.addAll(getAsList());
+        return l.subSets(k);
+    }
+
+    /**
+     * gives an iterator that includes the final empty list or tail,
+     * for [a,b,c] returns [a,b,c]; [b,c]; [c]; and [].
+     * for [a,b|T] returns [a,b|T]; [b|T]; and T.
+     */
+    public Iterator<ListTerm> listTermIterator() {
+        return new Iterator<ListTerm>() {
+            ListTerm nextLT = ArrayListTerm.this;
+            public boolean hasNext() {
+                return nextLT != null;
+            }
+            public ListTerm next() {
+                if (nextLT == null)
+                    throw new NoSuchElementException();
+                ListTerm current = nextLT;
+                nextLT = nextLT.isVar() ? null : nextLT.getNext();
+                return current;
+            }
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * returns an iterator where each element is a Term of this list,
+     * the tail of the list is not considered.
+     */
+    public Iterator<Term> iterator() {
+        return listIterator(0);
+    }
+
+    /**
+     * Returns this ListTerm as a Java List (implemented by ArrayList).
+     * Note: the tail of the list, if any, is not included!
+     */
+    public List<Term> getAsList() {
+        return new ArrayList<Term>(Arrays.asList(e.a).subList(from, e.to));
+    }
+
+    public String toString() {
+        StringBuilder s = new StringBuilder("[");
+        for (int i = from; i < e.to; i++) {
+            if (i > from)
+                s.append(',');
+            s.append(e.a[i]);
+        }
+        if (getTail() != null) {
+            s.append('|');
+            s.append(e.tail);
+        }
+        s.append(']');
+        return s.toString();
+    }
+
+    @Override
+    public Literal makeVarsAnnon(Unifier un) {
+        checkWritable();
+        for (int i = from; i < e.to; i++) {
+            Term ti = e.a[i];
+            if (ti.isVar())
+                e.a[i] = varToReplace(ti, un);
+            else if (ti instanceof Structure)
+                ((Structure)ti).makeVarsAnnon(un);
+        }
+        if (e.tail != null)
+            e.tail = varToReplace(e.tail, un);
+        changed();
+        return this;
+    }
+
+    @Override
+    public boolean hasVar(VarTerm t, Unifier u) {
+        for (int i = from; i < e.to; i++)
+            if (e.a[i].hasVar(t, u))
+                return true;
+        return getTail() != null && e.tail.hasVar(t, u);
+    }
+
+    @Override
+    public void countVars(Map<VarTerm, Integer> c) {
+        for (int i = from; i < e.to; i++)
+            e.a[i].countVars(c);
+        if (getTail() != null)
+            e.tail.countVars(c);
+    }
+
+    //
+    // Java List interface methods
+    //
+
+    private void checkIndex(int index, int max) {
+        if (index < 0 || index > max)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size());
+    }
+
+    public void add(int index, Term o) {
+        checkWritable();
+        checkIndex(index, size());
+        own(size()+1);
+        int i = from + index;
+        System.arraycopy(e.a, i, e.a, i+1, e.to-i);
+        e.a[i] = o;
+        e.to++;
+        changed();
+    }
+
+    public boolean add(Term o) {
+        checkWritable();
+        if (getTail() != null)
+            return false;
+        room(size()+1);
+        e.a[e.to++] = o;
+        e.tail = null;
+        changed();
+        return true;
+    }
+
+    @SuppressWarnings({ "rawtypes" })
+    public boolean addAll(Collection c) {
+        checkWritable();
+        if (c == null) return false;
+        if (getTail() != null) return false;
+        Object[] ts = c.toArray(); // c may be a view of this list
+        room(size() + ts.length);
+        for (Object t: ts)
+            e.a[e.to++] = (Term)t;
+        changed();
+        return true;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public boolean addAll(int index, Collection c) {
+        int p = index;
+        for (Term t: (Collection<Term>)c)
+            add(p++, t);
+        return true;
+    }
+
+    public void clear() {
+        checkWritable();
+        if (e.shared) {
+            e    = new Elems(new Term[4], 0, null);
+            from = 0;
+        } else {
+            Arrays.fill(e.a, from, e.to, null);
+            e.to   = from;
+            e.tail = null;
+        }
+        changed();
+    }
+
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @SuppressWarnings({ "rawtypes" })
+    public boolean containsAll(Collection c) {
+        for (Object o: c)
+            if (!contains(o))
+                return false;
+        return true;
+    }
+
+    public Term get(int index) {
+        if (index < 0 || index >= size())
+            return null;
+        return e.a[from+index];
+    }
+
+    public int indexOf(Object o) {
+        for (int i = from; i < e.to; i++)
+            if (e.a[i].equals(o))
+                return i-from;
+        return -1;
+    }
+
+    public int lastIndexOf(Object o) {
+        for (int i = e.to-1; i >= from; i--)
+            if (e.a[i].equals(o))
+                return i-from;
+        return -1;
+    }
+
+    public ListIterator<Term> listIterator() {
+        return listIterator(0);
+    }
+
+    public ListIterator<Term> listIterator(final int startIndex) {
+        return new ListIterator<Term>() {
+            int pos  = startIndex;
+            int last = -1;
+
+            public boolean hasNext() {
+                return pos < size();
+            }
+            public Term next() {
+                if (pos >= size())
+                    throw new NoSuchElementException();
+                last = pos++;
+                return e.a[from+last];
+            }
+            public boolean hasPrevious() {
+                return pos > 0;
+            }
+            public Term previous() {
+                if (pos <= 0)
+                    throw new NoSuchElementException();
+                last = --pos;
+                return e.a[from+last];
+            }
+            public int nextIndex() {
+                return pos;
+            }
+            public int previousIndex() {
+                return pos-1;
+            }
+            public void remove() {
+                if (last < 0)
+                    throw new IllegalStateException();
+                ArrayListTerm.this.remove(last);
+                if (last < pos)
+                    pos--;
+                last = -1;
+            }
+            public void set(Term o) {
+                if (last < 0)
+                    throw new IllegalStateException();
+                ArrayListTerm.this.set(last, o);
+            }
+            public void add(Term o) {
+                ArrayListTerm.this.add(pos++, o);
+                last = -1;
+            }
+        };
+    }
+
+    public Term remove(int index) {
+        checkWritable();
+        if (index < 0 || index >= size())
+            return null;
+        own(size());
+        int i = from + index;
+        Term bt = e.a[i];
+        System.arraycopy(e.a, i+1, e.a, i, e.to-i-1);
+        e.a[--e.to] = null;
+        changed();
+        return bt;
+    }
+
+    public boolean remove(Object o) {
+        int i = indexOf(o);
+        if (i >= 0) {
+            remove(i);
+            return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings({ "rawtypes" })
+    public boolean removeAll(Collection c) {
+        boolean r = true;
+        for (Object o: c)
+            r = r && remove(o);
+        return r;
+    }
+
+    @SuppressWarnings({ "rawtypes" })
+    public boolean retainAll(Collection c) {
+        boolean r = false;
+        Iterator<Term> i = iterator();
+        while (i.hasNext()) {
+            if (!c.contains(i.next())) {
+                i.remove();
+                r = true;
+            }
+        }
+        return r;
+    }
+
+    public Term set(int index, Term t) {
+        checkWritable();
+        if (index < 0 || index >= size())
+            return null;
+        e.a[from+index] = t;
+        changed();
+        return t;
+    }
+
+    public List<Term> subList(int fromIndex, int toIndex) {
+        return getAsList().subList(fromIndex, toIndex);
+    }
+
+    public Object[] toArray() {
+        return Arrays.copyOfRange(e.a, from, e.to, Object[].class);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        final int s = size();
+        if (a.length < s)
+            a = (T[])java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), s);
+        System.arraycopy(e.a, from, a, 0, s);
+        if (a.length > s)
+            a[s] = null;
+        return a;
+    }
+
+    public Element getAsDOM(Document document) {
+        Element u = document.createElement("list-term");
+        String c = "";
+        for (int i = from; i < e.to; i++) {
+            Element et = e.a[i].getAsDOM(document);
+            et.setAttribute("sep", c);
+            c = ",";
+            u.appendChild(et);
+        }
+        if (getTail() != null) {
+            Element et = e.tail.getAsDOM(document);
+            et.setAttribute("sep", "|");
+            u.appendChild(et);
+        }
+        return u;
+    }
+}
@@ -0,0 +1,142 @@
+package jason.asSyntax;
+
+import jason.NoValueException;
+import jason.asSemantics.Agent;
+import jason.asSemantics.ArithFunction;
+import jason.asSemantics.Unifier;
+import jason.asSyntax.ArithExpr.ArithmeticOp;
+
+/**
+ * An arithmetic expression compiled into a tree of evaluators. The tree is
+ * built once (see ArithExpr.compile) and then evaluated for many unifiers
+ * without walking the terms of the expression: constant sub-expressions are
+ * folded, operators are resolved, and the arguments of arithmetic functions
+ * are evaluated directly (not by capply).
+ *
+ * <p>The evaluators are immutable and can be shared by clones of the expression,
+ * since clones have the same vars.
+ */
+abstract class CompiledExpr {
+
+    /** evaluates the expression with the values of vars in u (u may be null) */
+    abstract double eval(Unifier u) throws NoValueException;
+
+    /** compiles a numeric term (a number, a var, an arithmetic expression or function) */
+    static CompiledExpr compile(Term t) {
+        if (t instanceof NumberTermImpl)
+            return new Const(((NumberTermImpl)t).solve());
+        if (t instanceof ArithExpr)
+            return compile((ArithExpr)t);
+        if (t.isVar())
+            return new Var((VarTerm)t);
+        if (t instanceof ArithFunctionTerm) {
+            ArithFunctionTerm f = (ArithFunctionTerm)t;
+            if (f.getFunction() != null && !f.getFunction().allowUngroundTerms()) {
+                CompiledExpr[] args = new CompiledExpr[f.getArity()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = compile(f.getTerm(i));
+                    if (args[i] instanceof Other)
+                        return new Other(t); // the function has args that are not numbers (e.g. lists)
+                }
+                return new Function(f, args);
+            }
+        }
+        return new Other(t);
+    }
+
+    static CompiledExpr compile(ArithExpr e) {
+        CompiledExpr l = compile(e.getTerm(0));
+        CompiledExpr r = null;
+        if (!e.isUnary())
+            r = compile(e.getTerm(1));
+
+        // constant folding
+        if (l instanceof Const && (r == null || r instanceof Const)) {
+            try {
+                return new Const(new BinOp(e.getOp(), l, r).eval(null));
+            } catch (Exception ex) {
+                // e.g. div by zero, let the evaluation throw the exception
+            }
+        }
+
+        if (r == null && e.getOp() != ArithmeticOp.minus)
+            return l; // unary plus
+        return new BinOp(e.getOp(), l, r);
+    }
+
+    private static final class Const extends CompiledExpr {
+        private final double value;
+        Const(double value) {
+            this.value = value;
+        }
+        double eval(Unifier u) {
+            return value;
+        }
+    }
+
+    private static final class Var extends CompiledExpr {
+        private final VarTerm var;
+        Var(VarTerm var) {
+            this.var = var;
+        }
+        double eval(Unifier u) throws NoValueException {
+            Term vl = u == null ? null : u.get(var);
+            if (vl == null)
+                throw new NoValueException("Error evaluating "+var+". It is not ground!");
+            if (vl instanceof NumberTermImpl)
+                return ((NumberTermImpl)vl).solve();
+            return ArithExpr.solve(vl, u);
+        }
+    }
+
+    private static final class BinOp extends CompiledExpr {
+        private final ArithmeticOp op;
+        private final CompiledExpr l, r;
+        BinOp(ArithmeticOp op, CompiledExpr l, CompiledExpr r) {
+            this.op = op;
+            this.l  = l;
+            this.r  = r;
+        }
+        double eval(Unifier u) throws NoValueException {
+            if (r == null) // unary minus
+                return -l.eval(u);
+            return op.eval(l.eval(u), r.eval(u));
+        }
+    }
+
+    /** an arithmetic function (resolved by the parser) whose arguments are numbers */
+    private static final class Function extends CompiledExpr {
+        private final ArithFunctionTerm term;
+        private final ArithFunction     function;
+        private final CompiledExpr[]    args;
+        Function(ArithFunctionTerm term, CompiledExpr[] args) {
+            this.term     = term;
+            this.function = term.getFunction();
+            this.args     = args;
+        }
+        double eval(Unifier u) throws NoValueException {
+            Term[] vls = new Term[args.length];
+            try {
+                for (int i = 0; i < args.length; i++)
+                    vls[i] = NumberTermImpl.valueOf(args[i].eval(u));
+                Agent ag = term.getAgent();
+                return function.evaluate(ag == null ? null : ag.getTS(), vls);
+            } catch (Exception e) {
+                // unground args, args that are not numbers, errors in the function, ...:
+                // evaluate by capply (that handles and logs these cases)
+                return ArithExpr.solve(term, u);
+            }
+        }
+    }
+
+    /** other terms are evaluated by capply */
+    private static final class Other extends CompiledExpr {
+        private final Term term;
+        Other(Term term) {
+            this.term = term;
+        }
+        double eval(Unifier u) throws NoValueException {
+            return ((NumberTerm)term.capply(u)).solve();
+        }
+    }
+}
@@ -25,7 +25,7 @@ public abstract class DefaultTerm implements Term, Serializable {
     private static final long serialVersionUID = 1L;
     private static Logger logger = Logger.getLogger(Term.class.getName());
 
-    protected Integer    hashCodeCache = null;
+    protected int        hashCodeCache = 0; // 0 means not computed (yet)
     protected SourceInfo srcInfo       = null;
 
     /** @deprecated it is preferable to use ASSyntax.parseTerm */
@@ -97,14 +97,31 @@ public abstract class DefaultTerm implements Term, Serializable {
     abstract public    Term   clone();
     abstract protected int    calcHashCode();
 
+    /**
+     * the hash code is computed once and cached; terms reset the cache when they are changed
+     * (changes in their sub-terms are not considered, so terms used as keys should not be changed)
+     */
     public int hashCode() {
-        if (hashCodeCache == null)
-            hashCodeCache = calcHashCode();
-        return hashCodeCache;
+        int h = hashCodeCache;
+        if (h == 0) {
+            h = calcHashCode();
+            hashCodeCache = h;
+        }
+        return h;
     }
 
     public void resetHashCodeCache() {
-        hashCodeCache = null;
+        hashCodeCache = 0;
+    }
+
+    /**
+     * returns true if the hash codes of this term and t were already computed and are different,
+     * so equals can return false without comparing the terms. It is not used by lists: their
+     * cells may be shared by several lists and changed by one of them (or by an iterator)
+     * without resetting the hash code cached by the others.
+     */
+    protected boolean cachedHashCodeDiffers(DefaultTerm t) {
+        return hashCodeCache != 0 && t.hashCodeCache != 0 && hashCodeCache != t.hashCodeCache;
     }
 
     public int compareTo(Term t) {
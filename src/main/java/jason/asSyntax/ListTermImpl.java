@@ -75,11 +75,11 @@ public class ListTermImpl extends Structure implements ListTerm {
         return clone();
     }
 
-    /** make a hard copy of the terms */
+    /** make a copy of the terms (ground terms are shared) */
     @Override
     public ListTerm capply(Unifier u) {
         ListTermImpl t = new ListTermImpl();
-        if (term != null) t.term = this.term.capply(u);
+        if (term != null) t.term = Structure.isGroundData(this.term) ? this.term : this.term.capply(u);
         if (next != null) t.next = this.next.capply(u);
         return t;
     }
@@ -129,6 +129,7 @@ public class ListTermImpl extends Structure implements ListTerm {
     }
 
     public void setTerm(Term t) {
+        resetHashCodeCache();
         term = t;
     }
 
@@ -138,6 +139,7 @@ public class ListTermImpl extends Structure implements ListTerm {
     }
 
     public void setNext(Term l) {
+        resetHashCodeCache();
         next = l;
     }
 
@@ -266,6 +268,7 @@ public class ListTermImpl extends Structure implements ListTerm {
 
     /** set the tail of this list */
     public void setTail(VarTerm v) {
+        resetHashCodeCache();
         if (getNext().isEmpty())
             next = v;
         else
@@ -299,6 +302,7 @@ public class ListTermImpl extends Structure implements ListTerm {
     }
 
     public Term removeLast() {
+        resetHashCodeCache(this, null); // all cells, since the last is changed
         ListTerm p = getPenultimate();
         if (p != null) {
             Term b = p.getTerm();
@@ -315,6 +319,7 @@ public class ListTermImpl extends Structure implements ListTerm {
      * @return the ListTerm where the term was added (i.e. the last ListTerm of the list)
      */
     public ListTerm append(Term t) {
+        resetHashCodeCache();
         if (isEmpty()) {
             term = t;
             next = new ListTermImpl();
@@ -332,6 +337,7 @@ public class ListTermImpl extends Structure implements ListTerm {
      * @return the new starter of the list
      */
     public ListTerm insert(Term t) {
+        resetHashCodeCache();
         ListTerm n = new ListTermImpl(term,next);
         this.term = t;
         this.next = n;
@@ -344,6 +350,7 @@ public class ListTermImpl extends Structure implements ListTerm {
      * @return the last ListTerm of the new list
      */
     public ListTerm concat(ListTerm lt) {
+        resetHashCodeCache();
         if (isEmpty()) {
             setValuesFrom(lt);
         } else if (((ListTerm)next).isEmpty() ) {
@@ -368,8 +375,16 @@ public class ListTermImpl extends Structure implements ListTerm {
             r = new ListTermImpl(term.clone(), r);
             r.setTail((VarTerm)next.clone());
             return r;
-        } else {
+        } else if (next instanceof ListTermImpl) {
             return ((ListTermImpl)next).reverse_internal( new ListTermImpl(term.clone(), r) );
+        } else { // next is another implementation of ListTerm (e.g. ArrayListTerm)
+            r = new ListTermImpl(term.clone(), r);
+            for (Term t: getNext())
+                r = new ListTermImpl(t.clone(), r);
+            VarTerm tail = getNext().getTail();
+            if (tail != null)
+                r.setTail((VarTerm)tail.clone());
+            return r;
         }
     }
 
@@ -575,10 +590,22 @@ public class ListTermImpl extends Structure implements ListTerm {
         };
     }
 
+    /** resets the hash code cached by the cells of l until the cell last (all cells if last is null) */
+    private static void resetHashCodeCache(ListTerm l, ListTerm last) {
+        while (l != null && !l.isEmpty() && l instanceof DefaultTerm) {
+            ((DefaultTerm)l).resetHashCodeCache();
+            if (l == last)
+                return;
+            l = l.getNext();
+        }
+    }
+
     private abstract class ListTermIterator<T> implements Iterator<T> {
+        final ListTerm head;
         ListTerm nextLT;
         ListTerm current = null;
         public ListTermIterator(ListTerm lt) {
+            head   = lt;
             nextLT = lt;
         }
         public boolean hasNext() {
@@ -590,6 +617,7 @@ public class ListTermImpl extends Structure implements ListTerm {
         }
         public void remove() {
             if (current != null && nextLT != null) {
+                resetHashCodeCache(head, current);
                 current.setTerm(nextLT.getTerm());
                 current.setNext(nextLT.getNext());
                 nextLT = current;
@@ -635,6 +663,7 @@ public class ListTermImpl extends Structure implements ListTerm {
     //
 
     public void add(int index, Term o) {
+        resetHashCodeCache();
         if (index == 0) {
             insert(o);
         } else if (index > 0 && getNext() != null) {
@@ -642,7 +671,7 @@ public class ListTermImpl extends Structure implements ListTerm {
         }
     }
     public boolean add(Term o) {
-        return getLast().append(o) != null;
+        return append(o) != null; // (append resets the hash code of all cells until the last)
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -667,6 +696,7 @@ public class ListTermImpl extends Structure implements ListTerm {
         return true;
     }
     public void clear() {
+        resetHashCodeCache();
         term = null;
         next = null;
     }
@@ -765,11 +795,13 @@ public class ListTermImpl extends Structure implements ListTerm {
     }
 
     protected void setValuesFrom(ListTerm lt) {
+        resetHashCodeCache();
         this.term = lt.getTerm();
         this.next = lt.getNext();
     }
 
     public Term remove(int index) {
+        resetHashCodeCache();
         if (index == 0) {
             Term bt = this.term;
             if (getNext() != null) {
@@ -785,6 +817,7 @@ public class ListTermImpl extends Structure implements ListTerm {
     }
 
     public boolean remove(Object o) {
+        resetHashCodeCache();
         if (term != null && term.equals(o)) {
             if (getNext() != null) {
                 setValuesFrom(getNext());
@@ -822,6 +855,7 @@ public class ListTermImpl extends Structure implements ListTerm {
     }
 
     public Term set(int index, Term t) {
+        resetHashCodeCache();
         if (index == 0) {
             this.term = (Term)t;
             return t;
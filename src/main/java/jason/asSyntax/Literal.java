@@ -429,11 +429,8 @@ public abstract class Literal extends DefaultTerm implements LogicalFormula {
                 if (annotsOptions != null) {
                     while (annotsOptions.hasNext()) {
                         Literal belToTry = belInBB.copy().setAnnots(null).addAnnots( annotsOptions.next() );
-                        Unifier u = un.clone();
-                        if (u.unifiesNoUndo(Literal.this, belToTry)) {
-                            current = u;
+                        if (unifiesInCopy(belToTry))
                             return;
-                        }
                     }
                     annotsOptions = null;
                 }
@@ -449,11 +446,9 @@ public abstract class Literal extends DefaultTerm implements LogicalFormula {
                         useDerefVars(rhead, ruleUn); // replace vars by the bottom in the var clusters (e.g. X=_2; Y=_2, a(X,Y) ===> A(_2,_2))
                         rhead.makeVarsAnnon(); // to remove vars in head with original names
 
-                        Unifier unC = un.clone();
-                        if (unC.unifiesNoUndo(Literal.this, rhead)) {
-                            current = unC;
+                        if (unifiesInCopy(rhead)) {
                             //if (cacheResults != null)
-                            //    cacheResults.add(unC);
+                            //    cacheResults.add(current);
                             return;
                         }
                     }
@@ -510,17 +505,31 @@ public abstract class Literal extends DefaultTerm implements LogicalFormula {
                                 }
                             }
                         } else { // it is an ordinary query on a belief
-                            Unifier u = un.clone();
-                            if (u.unifiesNoUndo(Literal.this, belInBB)) {
-                                current = u;
+                            if (unifiesInCopy(belInBB))
                                 return;
-                            }
                         }
                     }
                 }
             }
 
 
+            /**
+             * tries to unify this literal with b using un (undoing the changes afterwards),
+             * the unifier is cloned (into current) only if they unify
+             */
+            private boolean unifiesInCopy(Literal b) {
+                int m = un.mark();
+                try {
+                    if (un.unifiesNoUndo(Literal.this, b)) {
+                        current = un.clone();
+                        return true;
+                    }
+                    return false;
+                } finally {
+                    un.undo(m);
+                }
+            }
+
             public void remove() {}
         };
     }
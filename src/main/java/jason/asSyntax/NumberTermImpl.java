@@ -39,6 +39,24 @@ public final class NumberTermImpl extends DefaultTerm implements NumberTerm {
         srcInfo = t.srcInfo;
     }
 
+    private static final int              MIN_CACHED = -128;
+    private static final int              MAX_CACHED = 1024;
+    private static final NumberTermImpl[] cache      = new NumberTermImpl[MAX_CACHED - MIN_CACHED + 1];
+    static {
+        for (int i = 0; i < cache.length; i++)
+            cache[i] = new NumberTermImpl(i + MIN_CACHED);
+    }
+
+    /**
+     * returns a number term for vl, small integers are cached (as in Integer.valueOf).
+     * The cached objects are shared, so their source info should not be set.
+     */
+    public static NumberTermImpl valueOf(double vl) {
+        if (vl >= MIN_CACHED && vl <= MAX_CACHED && vl == (int)vl && (vl != 0 || 1/vl > 0)) // -0.0 is not cached
+            return cache[(int)vl - MIN_CACHED];
+        return new NumberTermImpl(vl);
+    }
+
     public double solve() {
         return value;
     }
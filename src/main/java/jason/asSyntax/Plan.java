@@ -1,10 +1,13 @@
 package jason.asSyntax;
 
 import jason.asSemantics.Unifier;
+import jason.asSemantics.VarSlots;
 import jason.asSyntax.parser.as2j;
 
 import java.io.Serializable;
 import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,6 +44,8 @@ public class Plan extends Structure implements Cloneable, Serializable {
 
     private boolean     isTerm = false; // it is true when the plan body is used as a term instead of an element of a plan
 
+    private VarSlots    varSlots = null; // the vars of the plan numbered into slots (see numberVars)
+
     // used by clone
     public Plan() {
         super("plan", 0);
@@ -181,13 +186,44 @@ public class Plan extends Structure implements Cloneable, Serializable {
     public Unifier isRelevant(Trigger te) {
         // annots in plan's TE must be a subset of the ones in the event!
         // (see definition of Unifier.unifies for 2 Preds)
-        Unifier u = new Unifier();
+        Unifier u = new Unifier(varSlots);
         if (u.unifiesNoUndo(tevent, te))
             return u;
         else
             return null;
     }
 
+    /**
+     * numbers the vars of the plan into slots, so that the unifiers of the plan
+     * store their values in arrays (used when the plan is added in the plan library)
+     */
+    public void numberVars() {
+        Map<VarTerm, Integer> vars = new HashMap<VarTerm, Integer>();
+        countVars(vars);
+        varSlots = new VarSlots(vars.keySet());
+    }
+
+    /**
+     * compiles the arithmetic expressions of the context, that is evaluated for
+     * every relevant event (used when the plan is added in the plan library)
+     */
+    public void compileExprs() {
+        if (context != null)
+            compileExprs(context);
+    }
+
+    private static void compileExprs(Term t) {
+        if (t instanceof ArithExpr)
+            ((ArithExpr)t).compile();
+        else if (t instanceof Structure)
+            for (int i=0; i<((Structure)t).getArity(); i++)
+                compileExprs(((Structure)t).getTerm(i));
+    }
+
+    public VarSlots getVarSlots() {
+        return varSlots;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == this) return true;
@@ -216,6 +252,7 @@ public class Plan extends Structure implements Cloneable, Serializable {
         p.body = (PlanBody)body.capply(u);
         p.setSrcInfo(srcInfo);
         p.isTerm = isTerm;
+        p.varSlots = varSlots;
 
         return p;
     }
@@ -235,6 +272,7 @@ public class Plan extends Structure implements Cloneable, Serializable {
         p.body = body.clonePB();
         p.setSrcInfo(srcInfo);
         p.isTerm = isTerm;
+        p.varSlots = varSlots;
 
         return p;
     }
@@ -261,6 +299,7 @@ public class Plan extends Structure implements Cloneable, Serializable {
 
         p.setSrcInfo(srcInfo);
         p.isTerm = isTerm;
+        p.varSlots = varSlots;
 
         return p;
     }
@@ -168,6 +168,8 @@ public class PlanLibrary implements Iterable<Plan> {
             }
 
             p.setAsPlanTerm(false); // it is not a term anymore
+            p.numberVars(); // the unifiers of the plan will store the values of its vars in slots
+            p.compileExprs();
 
             planLabels.put( getStringForLabel(p.getLabel()), p);
 
@@ -4,6 +4,7 @@ import jason.asSemantics.Unifier;
 import jason.asSyntax.parser.as2j;
 
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -21,7 +22,8 @@ public class Pred extends Structure {
     private static final long serialVersionUID = 1L;
     private static Logger logger = Logger.getLogger(Pred.class.getName());
 
-    private ListTerm      annots;
+    /** the annotations, kept sorted (by compareTo) so that they can be searched by binary search and merged */
+    private ArrayListTerm annots;
 
     public Pred(String functor) {
         super(functor);
@@ -39,7 +41,11 @@ public class Pred extends Structure {
         super(namespace, l);
 
         if (l.hasAnnot()) {
-            annots = l.getAnnots().cloneLT();
+            ListTerm la = l.getAnnots().cloneLT();
+            if (la instanceof ArrayListTerm)
+                annots = (ArrayListTerm)la; // already sorted
+            else
+                setAnnots(la);
         } else {
             annots = null;
         }
@@ -145,22 +151,38 @@ public class Pred extends Structure {
         return this;
     }
 
+    /**
+     * binary search for t in the annots,
+     * returns the index of t or (-(insertion point) - 1) if t is not an annot
+     * (as in Collections.binarySearch)
+     */
+    private int searchAnnot(Term t) {
+        int lo = 0;
+        int hi = annots.size()-1;
+        if (hi >= 0 && t.compareTo(annots.get(hi)) > 0) // common case of annots added in order
+            return -(hi+2);
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = t.compareTo(annots.get(mid));
+            if (c > 0)
+                lo = mid+1;
+            else if (c < 0)
+                hi = mid-1;
+            else
+                return mid;
+        }
+        return -(lo+1);
+    }
+
     @Override
     public boolean addAnnot(Term t) {
         if (annots == null)
-            annots = new ListTermImpl();
-        Iterator<ListTerm> i = annots.listTermIterator();
-        while (i.hasNext()) {
-            ListTerm lt = i.next();
-            int c = t.compareTo(lt.getTerm());
-            if (c == 0) { // equals
-                return false;
-            } else if (c < 0) {
-                lt.insert(t);
-                return true;
-            }
-        }
-        return false;
+            annots = new ArrayListTerm();
+        int i = searchAnnot(t);
+        if (i >= 0) // equals
+            return false;
+        annots.add(-i-1, t);
+        return true;
     }
 
     @Override
@@ -182,8 +204,12 @@ public class Pred extends Structure {
     public boolean delAnnot(Term t) {
         if (annots == null)
             return false;
-        else
-            return annots.remove(t); // TODO: use the sorted annots to reduce search (as in addAnnot)
+        int i = searchAnnot(t);
+        if (i >= 0 && annots.get(i).equals(t)) {
+            annots.remove(i);
+            return true;
+        }
+        return annots.remove(t); // compareTo and equals may not agree (e.g. for annots with vars)
     }
 
     @Override
@@ -200,18 +226,7 @@ public class Pred extends Structure {
     public boolean hasAnnot(Term t) {
         if (annots == null)
             return false;
-        // annots are ordered
-        Iterator<ListTerm> i = annots.listTermIterator();
-        while (i.hasNext()) {
-            ListTerm lt = i.next();
-            int c = t.compareTo(lt.getTerm());
-            if (c == 0) { // equals
-                return true;
-            } else if (c < 0) {
-                return false;
-            }
-        }
-        return false; //annots.contains(t);
+        return searchAnnot(t) >= 0; // annots are ordered
     }
 
     @Override
@@ -281,6 +296,8 @@ public class Pred extends Structure {
     public boolean delAnnots(List<Term> l) {
         boolean removed = false;
         if (l != null && this.hasAnnot()) {
+            if (l == annots) // l is changed by delAnnot
+                l = new ArrayList<Term>(l);
             for (Term t: l) {
                 boolean r = delAnnot(t);
                 removed = removed || r;
@@ -338,10 +355,14 @@ public class Pred extends Structure {
         if (!p.hasAnnot())
             return false;
 
+        ListTerm pOrigAnnots = p.getAnnots();
+        if (annots.getTail() == null && pOrigAnnots.getTail() == null && !annots.isEmpty() && !annots.get(annots.size()-1).isVar())
+            return hasSubsetAnnotMerge(pOrigAnnots, u);
+
         Term thisTail    = null;
 
         // since p's annots will be changed, clone the list (but not the terms)
-        ListTerm pAnnots     = p.getAnnots().cloneLTShallow();
+        ListTerm pAnnots     = pOrigAnnots.cloneLTShallow();
         VarTerm  pTail       = pAnnots.getTail();
         Term pAnnot          = null;
         ListTerm pAnnotsTail = null;
@@ -370,7 +391,7 @@ public class Pred extends Structure {
                 if (pAnnot != null && u.unifiesNoUndo(annot, pAnnot)) {
                     ok = true;
                     i2.remove();
-                    pAnnot = i2.next();
+                    pAnnot = i2.hasNext() ? i2.next() : null;
                     break;
                 } else if (pAnnot != null && pAnnot.compareTo(annot) > 0) {
                     break; // quite the loop, the current p annot is greater than this annot, so annot is not in p's annots
@@ -405,6 +426,33 @@ public class Pred extends Structure {
         return true;
     }
 
+    /**
+     * hasSubsetAnnot for the case where neither this nor p have tails and this has no var as annot:
+     * since both lists are sorted, they are merged and p's annots need not be copied
+     */
+    private boolean hasSubsetAnnotMerge(ListTerm pAnnots, Unifier u) {
+        Iterator<Term> i2 = pAnnots.iterator();
+        Term pAnnot = i2.hasNext() ? i2.next() : null;
+        for (int i = 0; i < annots.size(); i++) {
+            Term annot = annots.get(i);
+            boolean ok = false;
+            while (pAnnot != null) {
+                if (u.unifiesNoUndo(annot, pAnnot)) {
+                    ok = true;
+                    pAnnot = i2.hasNext() ? i2.next() : null;
+                    break;
+                } else if (pAnnot.compareTo(annot) > 0) {
+                    break; // annot is not in p's annots
+                } else {
+                    pAnnot = i2.hasNext() ? i2.next() : null;
+                }
+            }
+            if (!ok)
+                return false;
+        }
+        return true;
+    }
+
     @Override
     public void addSource(Term agName) {
         if (agName != null)
@@ -508,21 +556,8 @@ public class Pred extends Structure {
 
     @Override
     public Literal makeVarsAnnon(Unifier un) {
-        if (annots != null) {
-            ListTerm lt = annots;
-            while (!lt.isEmpty()) {
-                Term ta = lt.getTerm();
-                if (ta.isVar())
-                    lt.setTerm(varToReplace(ta, un));
-                else if (ta instanceof Structure)
-                    ((Structure)ta).makeVarsAnnon(un);
-                if (lt.isTail() && lt.getNext().isVar()) {
-                    lt.setNext(varToReplace(lt.getNext(), un));
-                    break;
-                }
-                lt = lt.getNext();
-            }
-        }
+        if (annots != null)
+            annots.makeVarsAnnon(un);
         return super.makeVarsAnnon(un);
     }
 
@@ -532,7 +567,15 @@ public class Pred extends Structure {
         if (o == this) return true;
         if (o instanceof Pred) {
             final Pred p = (Pred) o;
-            return super.equals(o) && this.hasSubsetAnnot(p) && p.hasSubsetAnnot(this);
+            if (!super.equals(o))
+                return false;
+            // the annots are sets, so if they have the same size one subset test is enough
+            final ListTerm pAnnots = p.getAnnots();
+            final int s1 = annots  == null ? 0 : annots.size();
+            final int s2 = pAnnots == null ? 0 : pAnnots.size();
+            if (s1 != s2)
+                return false;
+            return s1 == 0 || this.hasSubsetAnnot(p);
         } else if (o instanceof Atom && !hasAnnot() ) { // if o is some object that extends Atom (e.g. structure), goes to super equals
             return super.equals(o);                     // consider super equals only when this has no annots
         }
@@ -558,7 +601,7 @@ public class Pred extends Structure {
 
             Iterator<Term> pai = tAsPred.getAnnots().iterator();
             for (Term a : getAnnots()) {
-                c = a.compareTo(pai.next());
+                c = a.compareTo(pai.hasNext() ? pai.next() : null);
                 if (c != 0)
                     return c;
             }
@@ -85,6 +85,19 @@ public class RelExpr extends BinaryStructure implements LogicalFormula {
     }
 
     public Iterator<Unifier> logicalConsequence(final Agent ag, Unifier un) {
+        if (op.ordinal() >= RelationalOp.gt.ordinal() && op.ordinal() <= RelationalOp.dif.ordinal()
+                && isNumeric(getTerm(0), un) && isNumeric(getTerm(1), un)) {
+            // numeric comparison: solve the operands without capply
+            try {
+                if (compareNumbers(ArithExpr.solve(getTerm(0), un), ArithExpr.solve(getTerm(1), un)))
+                    return LogExpr.createUnifIterator(un);
+                else
+                    return LogExpr.EMPTY_UNIF_LIST.iterator();
+            } catch (Exception e) {
+                // the operands can not be solved, use capply below (which handles the errors)
+            }
+        }
+
         Term xp = getTerm(0).capply(un);
         Term yp = getTerm(1).capply(un);
 
@@ -161,6 +174,26 @@ public class RelExpr extends BinaryStructure implements LogicalFormula {
         return LogExpr.EMPTY_UNIF_LIST.iterator();  // empty iterator for unifier
     }
 
+    /** returns true if t is a number, an arithmetic expression or a var whose value is a number */
+    private static boolean isNumeric(Term t, Unifier u) {
+        if (t.isVar())
+            t = u == null ? null : u.get((VarTerm)t);
+        return t instanceof NumberTermImpl || t instanceof ArithExpr;
+    }
+
+    /** compares two numbers as compareTo and equals of NumberTermImpl */
+    private boolean compareNumbers(double x, double y) {
+        switch (op) {
+        case gt : return x > y;
+        case gte: return !(x < y); // as compareTo, that returns 0 for NaN
+        case lt : return x < y;
+        case lte: return !(x > y);
+        case eq : return x == y;
+        case dif: return x != y;
+        default : return false;
+        }
+    }
+
     /** returns some LogicalFormula that can be evaluated */
     public static LogicalFormula parseExpr(String sExpr) {
         as2j parser = new as2j(new StringReader(sExpr));
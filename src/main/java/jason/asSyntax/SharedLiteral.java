@@ -0,0 +1,68 @@
+package jason.asSyntax;
+
+import java.util.Collections;
+import java.util.List;
+
+import jason.asSemantics.Unifier;
+
+/**
+ * A literal that can not be changed, so that the same object can be
+ * shared by several belief bases (e.g. the common percepts of the environment
+ * perceived by all agents).
+ *
+ * <p>Methods that change the literal throw UnsupportedOperationException
+ * (as the lists returned by getTerms and getAnnots):
+ * a copy of it (a normal LiteralImpl) has to be used instead.
+ * The belief bases do not copy a shared literal when it is added and
+ * replace it by a copy when its annotations are changed.
+ */
+public final class SharedLiteral extends LiteralImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Term> termsView;
+
+    public SharedLiteral(Literal l) {
+        super(l);
+        List<Term> ts = super.getTerms();
+        termsView = ts == null ? null : Collections.unmodifiableList(ts);
+        ListTerm annots = super.getAnnots();
+        if (annots != null)
+            ((ArrayListTerm)annots).setReadOnly();
+    }
+
+    private static UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("shared literals can not be changed");
+    }
+
+    @Override public Literal setNegated(boolean b)      { throw immutable(); }
+    @Override public void addTerm(Term t)               { throw immutable(); }
+    @Override public void delTerm(int index)            { throw immutable(); }
+    @Override public Literal addTerms(Term ... ts )     { throw immutable(); }
+    @Override public Literal addTerms(List<Term> l)     { throw immutable(); }
+    @Override public Literal setTerms(List<Term> l)     { throw immutable(); }
+    @Override public void setTerm(int i, Term t)        { throw immutable(); }
+    @Override public Literal setAnnots(ListTerm l)      { throw immutable(); }
+    @Override public boolean addAnnot(Term t)           { throw immutable(); }
+    @Override public Literal addAnnots(List<Term> l)    { throw immutable(); }
+    @Override public Literal addAnnots(Term ... l)      { throw immutable(); }
+    @Override public boolean delAnnot(Term t)           { throw immutable(); }
+    @Override public void clearAnnots()                 { throw immutable(); }
+    @Override public boolean importAnnots(Literal p)    { throw immutable(); }
+    @Override public boolean delAnnots(List<Term> l)    { throw immutable(); }
+    @Override public void addSource(Term agName)        { throw immutable(); }
+    @Override public boolean delSource(Term agName)     { throw immutable(); }
+    @Override public void delSources()                  { throw immutable(); }
+
+    @Override
+    public List<Term> getTerms() {
+        return termsView;
+    }
+
+    @Override
+    public Literal makeVarsAnnon(Unifier un) {
+        if (isGround())
+            return this; // nothing to change
+        throw immutable();
+    }
+}
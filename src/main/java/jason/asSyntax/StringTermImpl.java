@@ -3,6 +3,7 @@ package jason.asSyntax;
 import jason.asSyntax.parser.as2j;
 
 import java.io.StringReader;
+import java.util.ArrayDeque;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -10,7 +11,17 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 /**
- * Immutable class for string terms.
+ * Class for string terms. The string of a term does not change (although
+ * the object that stores it does, see below).
+ *
+ * <p>The value of the term is a CharSequence, so that substrings (see
+ * {@link #substring(int, int)}) are views of the original string and
+ * concatenations (see {@link #concat(CharSequence...)}) are ropes of their parts:
+ * no characters are copied until the Java string is required (by getString,
+ * toString, equals, ...). The string is then built once and replaces the view.
+ *
+ * <p>As a view keeps its whole base string in memory, substrings that are small
+ * (compared to the base) are copied, as String.substring does.
  *
  * @author Jomi
  */
@@ -19,7 +30,9 @@ public final class StringTermImpl extends DefaultTerm implements StringTerm {
     private static final long serialVersionUID = 1L;
     private static Logger logger = Logger.getLogger(StringTermImpl.class.getName());
 
-    private final String value;
+    private static final int MIN_VIEW = 64; // smaller substrings are copied
+
+    private CharSequence value; // a String or a view/rope not materialised yet
 
     public StringTermImpl() {
         super();
@@ -30,15 +43,91 @@ public final class StringTermImpl extends DefaultTerm implements StringTerm {
         value = fs;
     }
 
+    /** creates a string term whose value is the char sequence (that should not be changed after that) */
+    public StringTermImpl(CharSequence fs) {
+        value = fs;
+    }
+
     public StringTermImpl(StringTermImpl t) {
-        value   = t.getString();
+        value   = t.value;
         srcInfo = t.srcInfo;
     }
 
     public String getString() {
+        CharSequence v = value;
+        if (v == null || v instanceof String)
+            return (String)v;
+        String s = v.toString(); // materialise the view
+        value = s;
+        return s;
+    }
+
+    /** returns the value of this term without building a Java string */
+    public CharSequence getCharSequence() {
         return value;
     }
 
+    /**
+     * returns a string term for the chars from start to end-1 of this term, the chars are not
+     * copied unless the substring is small compared to the string (so that it does not keep
+     * a large string in memory)
+     */
+    public StringTermImpl substring(int start, int end) {
+        if (start < 0 || end > length() || start > end)
+            throw new StringIndexOutOfBoundsException("substring("+start+","+end+") of a string with length "+length());
+        if (start == 0 && end == length())
+            return this;
+        CharSequence base = value;
+        if (base instanceof Slice) { // slice of the base, not of the slice
+            Slice sl = (Slice)base;
+            base   = sl.base;
+            start += sl.start;
+            end   += sl.start;
+        }
+        int n = end - start;
+        if (n < MIN_VIEW || n < base.length() / 4)
+            return new StringTermImpl(copyOf(base, start, end));
+        return new StringTermImpl(new Slice(base, start, end));
+    }
+
+    /** returns the chars from start to end-1 of c, without building the whole string of c */
+    private static String copyOf(CharSequence c, int start, int end) {
+        if (c instanceof String)
+            return ((String)c).substring(start, end);
+        StringBuilder sb = new StringBuilder(end - start);
+        append(sb, c, start, end);
+        return sb.toString();
+    }
+
+    /** appends the chars from start to end-1 of c to sb */
+    private static void append(StringBuilder sb, CharSequence c, int start, int end) {
+        if (c instanceof Rope) {
+            ((Rope)c).appendTo(sb, start, end);
+        } else if (c instanceof Slice) {
+            Slice sl = (Slice)c;
+            append(sb, sl.base, sl.start + start, sl.start + end);
+        } else {
+            sb.append(c, start, end);
+        }
+    }
+
+    /** returns a string term for the concatenation of the parts, the chars are not copied */
+    public static StringTermImpl concat(CharSequence... parts) {
+        CharSequence r = "";
+        for (CharSequence p: parts)
+            r = Rope.concat(r, p);
+        return new StringTermImpl(r);
+    }
+
+    /** returns the chars of a term (as used by .concat): the value of strings (not materialised) or the term as a string */
+    public static CharSequence toCharSequence(Term t) {
+        if (t instanceof StringTermImpl)
+            return ((StringTermImpl)t).getCharSequence();
+        if (t.isString())
+            return ((StringTerm)t).getString();
+        return t.toString();
+    }
+
     public StringTerm clone() {
         return this;
     }
@@ -59,10 +148,11 @@ public final class StringTermImpl extends DefaultTerm implements StringTerm {
     }
 
     public int length() {
-        if (value == null)
+        CharSequence v = value;
+        if (v == null)
             return 0;
         else
-            return value.length();
+            return v.length();
     }
 
     @Override
@@ -71,20 +161,22 @@ public final class StringTermImpl extends DefaultTerm implements StringTerm {
 
         if (t != null && t instanceof StringTerm) {
             StringTerm st = (StringTerm)t;
-            if (value == null)
+            String v = getString();
+            if (v == null)
                 return st.getString() == null;
             else
-                return value.equals(st.getString());
+                return v.equals(st.getString());
         }
         return false;
     }
 
     @Override
     protected int calcHashCode() {
-        if (value == null)
+        String v = getString();
+        if (v == null)
             return 0;
         else
-            return value.hashCode();
+            return v.hashCode();
     }
 
     @Override
@@ -98,7 +190,16 @@ public final class StringTermImpl extends DefaultTerm implements StringTerm {
 
 
     public String toString() {
-        return "\""+value+"\"";
+        return "\""+getString()+"\"";
+    }
+
+    /** views are serialised as strings */
+    private Object writeReplace() {
+        if (value == null || value instanceof String)
+            return this;
+        StringTermImpl t = new StringTermImpl(getString());
+        t.srcInfo = srcInfo;
+        return t;
     }
 
     /** get as XML */
@@ -107,4 +208,112 @@ public final class StringTermImpl extends DefaultTerm implements StringTerm {
         u.appendChild(document.createTextNode(toString()));
         return u;
     }
+
+    /** a view of the chars from start to end-1 of base */
+    private static final class Slice implements CharSequence {
+        final CharSequence base;
+        final int          start, end;
+
+        Slice(CharSequence base, int start, int end) {
+            this.base  = base;
+            this.start = start;
+            this.end   = end;
+        }
+
+        public int length() {
+            return end - start;
+        }
+
+        public char charAt(int i) {
+            if (i < 0 || i >= end - start)
+                throw new StringIndexOutOfBoundsException(i);
+            return base.charAt(start + i);
+        }
+
+        public CharSequence subSequence(int s, int e) {
+            if (s < 0 || e > end - start || s > e)
+                throw new StringIndexOutOfBoundsException("subSequence("+s+","+e+")");
+            return new Slice(base, start + s, start + e);
+        }
+
+        @Override
+        public String toString() {
+            return copyOf(base, start, end);
+        }
+    }
+
+    /** the concatenation of two char sequences */
+    private static final class Rope implements CharSequence {
+        private static final int MIN_LENGTH = 64; // smaller concatenations are simply copied
+
+        final CharSequence left, right;
+        final int          length;
+
+        private Rope(CharSequence left, CharSequence right) {
+            this.left   = left;
+            this.right  = right;
+            this.length = left.length() + right.length();
+        }
+
+        static CharSequence concat(CharSequence l, CharSequence r) {
+            if (l.length() == 0) return r;
+            if (r.length() == 0) return l;
+            if (l.length() + r.length() < MIN_LENGTH)
+                return new StringBuilder(l.length() + r.length()).append(l).append(r).toString();
+            return new Rope(l, r);
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int i) {
+            if (i < 0 || i >= length)
+                throw new StringIndexOutOfBoundsException(i);
+            CharSequence s = this;
+            while (s instanceof Rope) { // no recursion: ropes built by appends are deep
+                Rope r = (Rope)s;
+                if (i < r.left.length()) {
+                    s = r.left;
+                } else {
+                    i -= r.left.length();
+                    s = r.right;
+                }
+            }
+            return s.charAt(i);
+        }
+
+        public CharSequence subSequence(int s, int e) {
+            if (s < 0 || e > length || s > e)
+                throw new StringIndexOutOfBoundsException("subSequence("+s+","+e+")");
+            return new Slice(this, s, e);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(length);
+            appendTo(sb, 0, length);
+            return sb.toString();
+        }
+
+        /** appends the chars from start to end-1 of this rope to sb, only the parts in the range are visited */
+        void appendTo(StringBuilder sb, int start, int end) {
+            ArrayDeque<CharSequence> toAppend = new ArrayDeque<CharSequence>();
+            toAppend.push(this);
+            int pos = 0; // position of the next part in this rope
+            while (!toAppend.isEmpty() && pos < end) {
+                CharSequence s = toAppend.pop();
+                int len = s.length();
+                if (pos + len <= start) { // before the range
+                    pos += len;
+                } else if (s instanceof Rope) {
+                    toAppend.push(((Rope)s).right);
+                    toAppend.push(((Rope)s).left);
+                } else {
+                    append(sb, s, Math.max(start - pos, 0), Math.min(end - pos, len));
+                    pos += len;
+                }
+            }
+        }
+    }
 }
@@ -66,8 +66,10 @@ public class Structure extends Atom {
         final int tss = l.getArity();
         if (tss > 0) {
             terms = new ArrayList<Term>(tss);
-            for (int i = 0; i < tss; i++)
-                terms.add(l.getTerm(i).capply(u));
+            for (int i = 0; i < tss; i++) {
+                final Term t = l.getTerm(i);
+                terms.add(isGroundData(t) ? t : t.capply(u)); // ground terms are shared, not copied
+            }
         }
         resetHashCodeCache();
         //isGround = null;
@@ -84,6 +86,38 @@ public class Structure extends Atom {
             terms = new ArrayList<Term>(termsSize);
     }
 
+    /**
+     * returns true if t is ground and made only of atoms, numbers, strings, structures, literals and lists.
+     * capply does not change such a term, so it can be shared by the result of capply instead of copied.
+     * Other ground terms (e.g. arithmetic expressions, that are evaluated by capply, and object terms)
+     * and terms with vars in their namespaces are not considered.
+     */
+    static boolean isGroundData(Term t) {
+        final Class<?> c = t.getClass();
+        if (c == NumberTermImpl.class || c == StringTermImpl.class)
+            return true;
+        if (c == Atom.class || c == Structure.class || c == Pred.class || c == LiteralImpl.class) {
+            final Literal l = (Literal)t;
+            if (l.getNS().isVar())
+                return false;
+            final int tss = l.getArity();
+            for (int i = 0; i < tss; i++)
+                if (!isGroundData(l.getTerm(i)))
+                    return false;
+            return !l.hasAnnot() || isGroundData(l.getAnnots());
+        }
+        if (c == ListTermImpl.class || c == ArrayListTerm.class) {
+            final ListTerm lt = (ListTerm)t;
+            if (!lt.isGround())
+                return false;
+            for (Term e: lt)
+                if (!isGroundData(e))
+                    return false;
+            return true;
+        }
+        return false;
+    }
+
     public static Structure parse(String sTerm) {
         as2j parser = new as2j(new StringReader(sTerm));
         try {
@@ -118,6 +152,9 @@ public class Structure extends Atom {
             if (tAsStruct.isVar())
                 return ((VarTerm)t).equals(this);
 
+            if (tAsStruct.getClass() == getClass() && cachedHashCodeDiffers(tAsStruct))
+                return false;
+
             final int ts = getArity();
             if (ts != tAsStruct.getArity())
                 return false;
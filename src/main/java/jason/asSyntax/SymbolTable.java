@@ -0,0 +1,113 @@
+package jason.asSyntax;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Global table of symbols (functors of atoms, structures and variables).
+ *
+ * <p>The parser, the ASSyntax factories and messages intern their functors
+ * here, so that equal functors are the same String object (and String.equals
+ * is solved by the reference compare). Terms created by the constructors of
+ * Atom, Structure, ... are not interned, so functors are still compared by equals.
+ *
+ * <p>The table only has weak references to the symbols: a symbol is removed
+ * when no term refers to it anymore, so atoms created all the time (e.g. by
+ * the environment or by plans) do not fill the memory. The table is a
+ * ConcurrentHashMap, so that agents running in several threads do not wait
+ * for each other to intern their symbols.
+ */
+public final class SymbolTable {
+
+    private static final ConcurrentMap<Object, Symbol> symbols   = new ConcurrentHashMap<Object, Symbol>();
+    private static final ReferenceQueue<String>        collected = new ReferenceQueue<String>();
+
+    private SymbolTable() { }
+
+    /** returns the unique String object for s */
+    public static String intern(String s) {
+        if (s == null)
+            return null;
+        expunge();
+        Symbol r = symbols.get(new Probe(s));
+        if (r != null) {
+            String is = r.get();
+            if (is != null)
+                return is;
+        }
+        Symbol n = new Symbol(s);
+        while (true) {
+            r = symbols.putIfAbsent(n, n);
+            if (r == null)
+                return s;
+            String is = r.get();
+            if (is != null)
+                return is;
+            symbols.remove(r, r); // collected meanwhile
+        }
+    }
+
+    /** returns the number of symbols in the table (some of them may be already unused) */
+    public static int size() {
+        expunge();
+        return symbols.size();
+    }
+
+    /** removes the symbols collected by the GC */
+    private static void expunge() {
+        Reference<? extends String> r;
+        while ((r = collected.poll()) != null)
+            symbols.remove(r, r);
+    }
+
+    /** a weak reference to a symbol, used as key and value in the table (equals compares the symbols) */
+    private static final class Symbol extends WeakReference<String> {
+        final int hash;
+
+        Symbol(String s) {
+            super(s, collected);
+            hash = s.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            String s = get();
+            if (s == null)
+                return false;
+            if (o instanceof Symbol)
+                return s.equals(((Symbol)o).get());
+            if (o instanceof Probe)
+                return s.equals(((Probe)o).s);
+            return false;
+        }
+    }
+
+    /** the key used to look up a symbol in the table (without creating a reference) */
+    private static final class Probe {
+        final String s;
+
+        Probe(String s) {
+            this.s = s;
+        }
+
+        @Override
+        public int hashCode() {
+            return s.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Symbol && s.equals(((Symbol)o).get());
+        }
+    }
+}
@@ -35,6 +35,8 @@ public class VarTerm extends LiteralImpl implements NumberTerm, ListTerm { //, S
 
     //private Term value  = null;
 
+    private int slot = -1; // position of this var in the slots of its plan (see VarSlots)
+
     public VarTerm(String s) {
         super(s);
         if (s != null && Character.isLowerCase(s.charAt(0))) {
@@ -50,6 +52,17 @@ public class VarTerm extends LiteralImpl implements NumberTerm, ListTerm { //, S
 
     public VarTerm(Atom namespace, Literal v) {
         super(namespace, !v.negated(), v);
+        if (v instanceof VarTerm)
+            slot = ((VarTerm)v).slot;
+    }
+
+    /** returns the slot of this var in the VarSlots of its plan (-1 if it has no slot) */
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int s) {
+        slot = s;
     }
 
     /** @deprecated prefer ASSyntax.parseVar(...) */
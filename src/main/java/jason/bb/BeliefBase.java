@@ -12,6 +12,7 @@ import jason.asSyntax.Atom;
 import jason.asSyntax.Literal;
 import jason.asSyntax.Pred;
 import jason.asSyntax.PredicateIndicator;
+import jason.asSyntax.SymbolTable;
 import jason.asSyntax.Term;
 
 
@@ -21,8 +22,8 @@ import jason.asSyntax.Term;
  */
 public abstract class BeliefBase implements Iterable<Literal>, Cloneable {
 
-    public static final Term ASelf    = new Atom("self");
-    public static final Term APercept = new Atom("percept");
+    public static final Term ASelf    = new Atom(SymbolTable.intern("self"));
+    public static final Term APercept = new Atom(SymbolTable.intern("percept"));
 
     /** represents the structure 'source(percept)' */
     public static final Term TPercept = Pred.createSource(APercept);
@@ -129,6 +130,15 @@ public abstract class BeliefBase implements Iterable<Literal>, Cloneable {
 
     public abstract BeliefBase clone();
 
+    /**
+     * Returns true if this BB can be queried while other threads change it, so that
+     * the reasoning cycle does not need to synchronise the belief update (sense) and
+     * the evaluation of plans' context (deliberate).
+     */
+    public boolean supportsConcurrentQueries() {
+        return false;
+    }
+
     Object lock = new Object();
 
     /** Gets a lock for the BB */
@@ -0,0 +1,833 @@
+package jason.bb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+import jason.NoValueException;
+import jason.asSemantics.Agent;
+import jason.asSemantics.Unifier;
+import jason.asSyntax.Atom;
+import jason.asSyntax.Literal;
+import jason.asSyntax.LiteralImpl;
+import jason.asSyntax.NumberTerm;
+import jason.asSyntax.NumberTermImpl;
+import jason.asSyntax.Pred;
+import jason.asSyntax.PredicateIndicator;
+import jason.asSyntax.Structure;
+import jason.asSyntax.SymbolTable;
+import jason.asSyntax.Term;
+import jason.asSyntax.VarTerm;
+
+/**
+ * Customised version of Belief Base where the ground facts of some predicates
+ * are stored in columns of primitive values (one column for each argument),
+ * instead of one Literal object for each belief. It is useful for large
+ * tables of facts (grid cells, sensor readings, ...).
+ *
+ * <p>E.g. in a .mas2j project file:<br/>
+ * <code>agents: bob beliefBaseClass jason.bb.ColumnarBB("cell(int,int,atom)", "temp(atom,double)")</code>
+ * <br/>
+ * The arguments of <code>cell/3</code> are stored as two columns of ints and one column
+ * of atoms (stored as ids of the atom in a table shared by all agents).
+ *
+ * <p>Only ground and positive facts of the default namespace whose arguments fit in the columns
+ * and whose annotations are a single source (as <code>cell(1,2,free)[source(percept)]</code>) are stored in
+ * columns, other beliefs (including a fact that receives more annotations) are stored in the next BB of the chain.
+ * Literals are created only when the facts are iterated (contains, getCandidateBeliefs, ...);
+ * the candidate beliefs for a query are selected by an index of the values of each column,
+ * so only the facts that match the bound arguments of the query are visited and created.
+ *
+ * <p>Facts stored in columns are kept in the same order as in the default BB (new beliefs
+ * are placed at the beginning, unless added in the end). However, as they are stored apart
+ * from the beliefs of the next BB, the order between them and the other beliefs of the same
+ * predicate is not kept: the facts in columns come first in getCandidateBeliefs.
+ * As the iterators of the default BB, the iterators of the facts do not throw
+ * ConcurrentModificationException when the BB is changed while they are used.
+ *
+ * @author jomi
+ */
+public class ColumnarBB extends ChainBBAdapter {
+
+    private static Logger logger = Logger.getLogger(ColumnarBB.class.getName());
+
+    static final byte INT    = 0;
+    static final byte DOUBLE = 1;
+    static final byte ATOM   = 2;
+
+    Map<PredicateIndicator, FactTable> tables = new HashMap<PredicateIndicator, FactTable>();
+
+    public ColumnarBB() {  }
+    public ColumnarBB(BeliefBase next) {
+        super(next);
+    }
+
+    @Override
+    public void init(Agent ag, String[] args) {
+        for (int i=0; i<args.length; i++) {
+            Structure s = Structure.parse(args[i]);
+            byte[] types = new byte[s.getArity()];
+            for (int c=0; c<types.length; c++) {
+                String t = s.getTerm(c).toString();
+                if (t.equals("int")) {
+                    types[c] = INT;
+                } else if (t.equals("double")) {
+                    types[c] = DOUBLE;
+                } else if (t.equals("atom")) {
+                    types[c] = ATOM;
+                } else {
+                    logger.warning("Unknown column type '"+t+"' in "+s+", it should be int, double, or atom. The predicate will not be stored in columns.");
+                    types = null;
+                    break;
+                }
+            }
+            if (types != null)
+                tables.put(new PredicateIndicator(s.getFunctor(), s.getArity()), new FactTable(s.getFunctor(), types));
+        }
+        nextBB.init(ag, args);
+    }
+
+    /** returns the table for l, or null if l is not stored in columns */
+    private FactTable getTable(Literal l) {
+        if (l.negated() || l.getNS() != Literal.DefaultNS)
+            return null;
+        return tables.get(l.getPredicateIndicator());
+    }
+
+    /** returns the table for the query l, whose namespace may be a var (bound or not in u) */
+    private FactTable getTable(Literal l, Unifier u) {
+        if (l.negated())
+            return null;
+        Term ns = l.getNS();
+        if (ns.isVar())
+            ns = u.get((VarTerm)ns);
+        if (ns != null && !ns.isVar() && !ns.equals(Literal.DefaultNS))
+            return null;
+        return tables.get(new PredicateIndicator(l.getFunctor(), l.getArity()));
+    }
+
+    @Override
+    public void clear() {
+        for (FactTable t: tables.values())
+            t.clear();
+        nextBB.clear();
+    }
+
+    @Override
+    public boolean add(Literal l) {
+        return add(l, false);
+    }
+
+    @Override
+    public boolean add(int index, Literal l) {
+        return add(l, index != 0);
+    }
+
+    protected boolean add(Literal l, boolean addInEnd) {
+        FactTable t = getTable(l);
+        if (t == null || l.isRule() || !l.isGround())
+            return addInNext(l, addInEnd);
+
+        long[] key = new long[t.types.length];
+        if (!t.encode(l, key, true))
+            return addInNext(l, addInEnd);
+
+        int row = t.find(key);
+        if (row >= 0) {
+            Literal bl = t.literal(row);
+            if (l.hasSubsetAnnot(bl)) // the annots of l are already in BB
+                return false;
+            // bl will have more annots: move it to the next BB
+            t.remove(row);
+            addInNext(bl, addInEnd);
+            return addInNext(l, addInEnd);
+        }
+
+        int src = getSource(l);
+        if (src < 0 || nextBB.contains(l) != null)
+            return addInNext(l, addInEnd);
+        t.add(key, src, !addInEnd);
+        return true;
+    }
+
+    private boolean addInNext(Literal l, boolean addInEnd) {
+        return addInEnd ? nextBB.add(1, l) : nextBB.add(l);
+    }
+
+    /** returns the id of the source of l if the only annotation of l is source(atom), -1 otherwise */
+    private int getSource(Literal l) {
+        if (l.getAnnots() == null || l.getAnnots().size() != 1)
+            return -1;
+        Term s = l.getAnnots().get(0);
+        if (!s.isStructure() || !((Structure)s).getFunctor().equals("source") || ((Structure)s).getArity() != 1 || ((Literal)s).hasAnnot())
+            return -1;
+        Term a = ((Structure)s).getTerm(0);
+        if (!isDefaultAtom(a))
+            return -1;
+        return AtomTable.getId(((Atom)a).getFunctor(), true);
+    }
+
+    private static boolean isDefaultAtom(Term t) {
+        return t.isAtom() && ((Atom)t).getNS() == Literal.DefaultNS;
+    }
+
+    @Override
+    public Literal contains(Literal l) {
+        FactTable t = getTable(l);
+        if (t != null) {
+            long[] key = new long[t.types.length];
+            if (t.encode(l, key, false)) {
+                int row = t.find(key);
+                if (row >= 0)
+                    return t.literal(row);
+            }
+        }
+        return nextBB.contains(l);
+    }
+
+    @Override
+    public boolean remove(Literal l) {
+        FactTable t = getTable(l);
+        if (t != null) {
+            long[] key = new long[t.types.length];
+            if (t.encode(l, key, false)) {
+                int row = t.find(key);
+                if (row >= 0) {
+                    // as in the default BB, l with no annots removes nothing
+                    if (l.hasAnnot() && l.hasSubsetAnnot(t.literal(row))) {
+                        t.remove(row);
+                        return true;
+                    }
+                    return false;
+                }
+            }
+        }
+        return nextBB.remove(l);
+    }
+
+    @Override
+    public boolean abolish(PredicateIndicator pi) {
+        return abolish(Literal.DefaultNS, pi);
+    }
+
+    @Override
+    public boolean abolish(Atom namespace, PredicateIndicator pi) {
+        boolean r = false;
+        if (namespace == Literal.DefaultNS) {
+            FactTable t = tables.get(pi);
+            if (t != null && t.live > 0) {
+                t.clear();
+                r = true;
+            }
+        }
+        return nextBB.abolish(namespace, pi) || r;
+    }
+
+    @Override
+    public int size() {
+        int s = nextBB.size();
+        for (FactTable t: tables.values())
+            s += t.live;
+        return s;
+    }
+
+    @Override
+    public Iterator<Literal> iterator() {
+        List<Iterator<Literal>> its = new ArrayList<Iterator<Literal>>();
+        its.add(nextBB.iterator());
+        for (FactTable t: tables.values())
+            its.add(t.rows(null, -1));
+        return DefaultBeliefBase.concat(its);
+    }
+
+    @Override
+    public Iterator<Literal> getCandidateBeliefs(PredicateIndicator pi) {
+        FactTable t = tables.get(pi);
+        if (t == null)
+            return nextBB.getCandidateBeliefs(pi);
+        List<Iterator<Literal>> its = new ArrayList<Iterator<Literal>>();
+        its.add(t.rows(null, -1));
+        its.add(nextBB.getCandidateBeliefs(pi));
+        return DefaultBeliefBase.concat(its);
+    }
+
+    @Override
+    public Iterator<Literal> getCandidateBeliefs(Literal l, Unifier u) {
+        if (l.isVar()) // all bels are relevant
+            return iterator();
+        FactTable t = getTable(l, u);
+        if (t == null)
+            return nextBB.getCandidateBeliefs(l, u);
+
+        List<Iterator<Literal>> its = new ArrayList<Iterator<Literal>>();
+        // selects the rows by the bound arguments of l
+        long[]    key   = new long[t.types.length];
+        boolean[] bound = new boolean[t.types.length];
+        boolean   all   = true;  // all arguments are bound
+        boolean   some  = false; // some argument is bound
+        boolean   none  = false;
+        for (int c=0; c<key.length; c++) {
+            Term k = DefaultBeliefBase.getIndexKey(l.getTerm(c), u);
+            if (k == null) {
+                all = false;
+            } else if (t.encode(c, k, key, false)) {
+                bound[c] = true;
+                some  = true;
+            } else {
+                none = true; // the value is not in the column
+                break;
+            }
+        }
+        if (!none) {
+            if (all) {
+                int row = t.find(key);
+                if (row >= 0)
+                    its.add(Arrays.asList(t.literal(row)).iterator());
+            } else {
+                its.add(t.rows(some ? t.select(key, bound) : null, -1));
+            }
+        }
+        its.add(nextBB.getCandidateBeliefs(l, u));
+        return DefaultBeliefBase.concat(its);
+    }
+
+    @Override
+    public Iterator<Literal> getPercepts() {
+        List<Iterator<Literal>> its = new ArrayList<Iterator<Literal>>();
+        its.add(nextBB.getPercepts());
+        int percept = AtomTable.getId(((Atom)APercept).getFunctor(), true);
+        for (FactTable t: tables.values())
+            its.add(t.rows(null, percept));
+        return DefaultBeliefBase.concat(its);
+    }
+
+    @Override
+    public BeliefBase clone() {
+        ColumnarBB nbb = new ColumnarBB(nextBB.clone());
+        for (PredicateIndicator pi: tables.keySet())
+            nbb.tables.put(pi, tables.get(pi).copy());
+        return nbb;
+    }
+
+    /** ids for atoms, shared by all agents (as the values of the columns, they are never removed) */
+    static final class AtomTable {
+        private static final Map<String,Integer> ids     = new HashMap<String, Integer>();
+        private static final List<Atom>          atoms   = new ArrayList<Atom>();
+        private static final List<Term>          sources = new ArrayList<Term>();
+
+        /** returns the id of atom a, or -1 if a has no id and create is false */
+        static synchronized int getId(String a, boolean create) {
+            Integer id = ids.get(a);
+            if (id == null) {
+                if (!create)
+                    return -1;
+                id = atoms.size();
+                Atom atom = new Atom(SymbolTable.intern(a));
+                atoms.add(atom);
+                sources.add(Pred.createSource(atom));
+                ids.put(a, id);
+            }
+            return id;
+        }
+
+        static synchronized Atom getAtom(int id) {
+            return atoms.get(id);
+        }
+
+        /** returns the term source(a) for the atom with the id */
+        static synchronized Term getSource(int id) {
+            return sources.get(id);
+        }
+    }
+
+    /** the facts of one predicate, stored in columns */
+    static final class FactTable {
+        final String     functor;
+        final byte[]     types;
+        final int[][]    icols;   // columns for int and atom arguments
+        final double[][] dcols;   // columns for double arguments
+        int[]     sources;        // id of the source of the fact in each row, -1 for removed rows
+        boolean[] first;          // whether the fact in each row was added at the beginning of the BB
+        long[]    serials;        // number of the fact in each row, increasing with the rows (used by the iterators after compactions)
+        long   serial = 0;        // number of the next fact added
+        int    rows = 0;          // number of used rows (including removed rows)
+        int    live = 0;          // number of facts
+        int[]  index;             // hash table (open addressing) of live rows: row+1, 0 is empty
+        ColumnIndex[] cindexes;   // the rows by the value of each column
+        int    compactions = 0;   // number of times the rows have been moved
+
+        FactTable(String functor, byte[] types) {
+            this.functor = functor;
+            this.types   = types;
+            icols   = new int[types.length][];
+            dcols   = new double[types.length][];
+            for (int c=0; c<types.length; c++) {
+                if (types[c] == DOUBLE)
+                    dcols[c] = new double[16];
+                else
+                    icols[c] = new int[16];
+            }
+            sources = new int[16];
+            first   = new boolean[16];
+            serials = new long[16];
+            index   = new int[32];
+            rebuildColumnIndexes();
+        }
+
+        FactTable copy() {
+            FactTable t = new FactTable(functor, types);
+            for (int c=0; c<types.length; c++) {
+                if (icols[c] != null) t.icols[c] = icols[c].clone();
+                if (dcols[c] != null) t.dcols[c] = dcols[c].clone();
+            }
+            t.sources = sources.clone();
+            t.first   = first.clone();
+            t.serials = serials.clone();
+            t.serial  = serial;
+            t.index   = index.clone();
+            t.rows    = rows;
+            t.live    = live;
+            t.rebuildColumnIndexes();
+            return t;
+        }
+
+        void clear() {
+            Arrays.fill(sources, 0, rows, -1);
+            Arrays.fill(index, 0);
+            rows = 0;
+            live = 0;
+            compactions++;
+            rebuildColumnIndexes();
+        }
+
+        /** encodes the arguments of l into key, returns false if some argument does not fit in its column */
+        boolean encode(Literal l, long[] key, boolean createAtoms) {
+            for (int c=0; c<types.length; c++)
+                if (!encode(c, l.getTerm(c), key, createAtoms))
+                    return false;
+            return true;
+        }
+
+        boolean encode(int c, Term t, long[] key, boolean createAtoms) {
+            if (types[c] == ATOM) {
+                if (!isDefaultAtom(t))
+                    return false;
+                int id = AtomTable.getId(((Atom)t).getFunctor(), createAtoms);
+                key[c] = id;
+                return id >= 0;
+            }
+            if (!t.isNumeric() || t.isArithExpr())
+                return false;
+            double d;
+            try {
+                d = ((NumberTerm)t).solve();
+            } catch (NoValueException e) {
+                return false;
+            }
+            if (types[c] == INT) {
+                if (d != Math.rint(d) || d < Integer.MIN_VALUE || d > Integer.MAX_VALUE)
+                    return false;
+                key[c] = (int)d;
+            } else {
+                key[c] = Double.doubleToLongBits(d == 0 ? 0.0 : d);
+            }
+            return true;
+        }
+
+        private long value(int row, int c) {
+            if (types[c] == DOUBLE) {
+                double d = dcols[c][row];
+                return Double.doubleToLongBits(d == 0 ? 0.0 : d);
+            } else {
+                return icols[c][row];
+            }
+        }
+
+        private static int hash(long h) {
+            int x = (int)(h ^ (h >>> 32)) * 0x9E3779B9;
+            return x ^ (x >>> 16);
+        }
+
+        private int hashKey(long[] key) {
+            long h = 17;
+            for (long v: key)
+                h = h * 31 + v;
+            return hash(h);
+        }
+
+        private int hashRow(int row) {
+            long h = 17;
+            for (int c=0; c<types.length; c++)
+                h = h * 31 + value(row, c);
+            return hash(h);
+        }
+
+        boolean matches(int row, long[] key, boolean[] bound) {
+            for (int c=0; c<key.length; c++)
+                if ((bound == null || bound[c]) && value(row, c) != key[c])
+                    return false;
+            return true;
+        }
+
+        /** returns the row of the fact with the values of key, -1 if there is no such fact */
+        int find(long[] key) {
+            int mask = index.length - 1;
+            int s = hashKey(key) & mask;
+            while (index[s] != 0) {
+                int row = index[s] - 1;
+                if (matches(row, key, null))
+                    return row;
+                s = (s + 1) & mask;
+            }
+            return -1;
+        }
+
+        void add(long[] key, int source, boolean atBeginning) {
+            if (rows - live > 64 && rows - live > live)
+                compact();
+            if (rows == sources.length)
+                grow();
+            int row = rows++;
+            for (int c=0; c<types.length; c++) {
+                if (types[c] == DOUBLE)
+                    dcols[c][row] = Double.longBitsToDouble(key[c]);
+                else
+                    icols[c][row] = (int)key[c];
+            }
+            sources[row] = source;
+            first[row]   = atBeginning;
+            serials[row] = serial++;
+            live++;
+            if (live * 2 > index.length)
+                rebuildIndex(index.length * 2);
+            else
+                addInIndex(row);
+            for (int c=0; c<types.length; c++)
+                cindexes[c].add(key[c], row);
+        }
+
+        private void addInIndex(int row) {
+            int mask = index.length - 1;
+            int s = hashRow(row) & mask;
+            while (index[s] != 0)
+                s = (s + 1) & mask;
+            index[s] = row + 1;
+        }
+
+        void remove(int row) {
+            // removes the row from the index (backward shift deletion)
+            int mask = index.length - 1;
+            int i = hashRow(row) & mask;
+            while (index[i] != row + 1)
+                i = (i + 1) & mask;
+            index[i] = 0;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (index[j] == 0)
+                    break;
+                int k = hashRow(index[j] - 1) & mask; // slot where the entry in j should be
+                if ((j > i && (k <= i || k > j)) || (j < i && k <= i && k > j)) {
+                    index[i] = index[j];
+                    index[j] = 0;
+                    i = j;
+                }
+            }
+            for (int c=0; c<types.length; c++)
+                cindexes[c].remove(value(row, c));
+            sources[row] = -1;
+            live--;
+        }
+
+        private void grow() {
+            int n = sources.length * 2;
+            for (int c=0; c<types.length; c++) {
+                if (types[c] == DOUBLE)
+                    dcols[c] = Arrays.copyOf(dcols[c], n);
+                else
+                    icols[c] = Arrays.copyOf(icols[c], n);
+            }
+            sources = Arrays.copyOf(sources, n);
+            first   = Arrays.copyOf(first, n);
+            serials = Arrays.copyOf(serials, n);
+        }
+
+        /** moves the live rows to the beginning of the columns (keeping their order) */
+        private void compact() {
+            int n = 0;
+            for (int row=0; row<rows; row++) {
+                if (sources[row] >= 0) {
+                    if (n != row) {
+                        for (int c=0; c<types.length; c++) {
+                            if (types[c] == DOUBLE)
+                                dcols[c][n] = dcols[c][row];
+                            else
+                                icols[c][n] = icols[c][row];
+                        }
+                        sources[n] = sources[row];
+                        first[n]   = first[row];
+                        serials[n] = serials[row];
+                    }
+                    n++;
+                }
+            }
+            rows = n;
+            compactions++;
+            rebuildIndex(index.length);
+            rebuildColumnIndexes();
+        }
+
+        /** returns the first row whose fact has serial >= s (rows if there is no such row) */
+        int rowOf(long s) {
+            int lo = 0;
+            int hi = rows;
+            while (lo < hi) {
+                int m = (lo + hi) >>> 1;
+                if (serials[m] < s)
+                    lo = m + 1;
+                else
+                    hi = m;
+            }
+            return lo;
+        }
+
+        /** returns the row of the live fact with serial s, -1 if it was removed */
+        int rowOfFact(long s) {
+            int row = rowOf(s);
+            return row < rows && serials[row] == s && sources[row] >= 0 ? row : -1;
+        }
+
+        private void rebuildIndex(int size) {
+            index = new int[size];
+            for (int row=0; row<rows; row++)
+                if (sources[row] >= 0)
+                    addInIndex(row);
+        }
+
+        private void rebuildColumnIndexes() {
+            cindexes = new ColumnIndex[types.length];
+            for (int c=0; c<types.length; c++) {
+                cindexes[c] = new ColumnIndex(sources.length);
+                for (int row=0; row<rows; row++)
+                    if (sources[row] >= 0)
+                        cindexes[c].add(value(row, c), row);
+            }
+        }
+
+        /**
+         * returns the rows of the facts that match the key in the bound columns (at least
+         * one column is bound), the index of the bound column with less facts is used
+         */
+        int[] select(long[] key, boolean[] bound) {
+            int best = -1;
+            int min  = Integer.MAX_VALUE;
+            for (int c=0; c<key.length; c++) {
+                if (bound[c]) {
+                    int n = cindexes[c].count(key[c]);
+                    if (n < min) {
+                        min  = n;
+                        best = c;
+                    }
+                }
+            }
+            int[] sel = new int[min];
+            int   n   = 0;
+            int   liveRows = 0;
+            ColumnIndex ci = cindexes[best];
+            int row = ci.head(key[best]);
+            while (row >= 0 && liveRows < min) {
+                if (sources[row] >= 0) {
+                    liveRows++;
+                    if (matches(row, key, bound))
+                        sel[n++] = row;
+                }
+                row = ci.next[row];
+            }
+            return n == sel.length ? sel : Arrays.copyOf(sel, n);
+        }
+
+        /** creates the literal for the fact in a row */
+        Literal literal(int row) {
+            Literal l = new LiteralImpl(functor);
+            for (int c=0; c<types.length; c++) {
+                switch (types[c]) {
+                case INT:    l.addTerm(new NumberTermImpl(icols[c][row])); break;
+                case DOUBLE: l.addTerm(new NumberTermImpl(dcols[c][row])); break;
+                default:     l.addTerm(AtomTable.getAtom(icols[c][row]));
+                }
+            }
+            l.addAnnot(AtomTable.getSource(sources[row]));
+            return l;
+        }
+
+        /**
+         * returns an iterator for the facts in the rows sel (all rows if sel is null) that have the
+         * source (any source if it is -1), in the order of the default BB: the facts added at
+         * the beginning (the last added first) and then the facts added in the end.
+         * The iterator keeps the serials of the facts, so that it finds its position again
+         * when the rows are moved by a compaction (or removed by clear).
+         */
+        Iterator<Literal> rows(final int[] sel, final int source) {
+            final long[] selSerials;
+            if (sel == null) {
+                selSerials = null;
+            } else {
+                selSerials = new long[sel.length];
+                for (int k=0; k<sel.length; k++)
+                    selSerials[k] = serials[sel[k]];
+            }
+            return new Iterator<Literal>() {
+                int       cp    = compactions;
+                int[]     rs    = sel;                                   // rows of the selected facts (-1 for removed facts)
+                boolean   front = true;                                  // iterating the facts added at the beginning
+                int       i     = (sel == null ? rows : sel.length) - 1; // next position of rs (or row) to check
+                long      cur   = Long.MAX_VALUE;                        // serial of the last row checked (when rs is null)
+                long      last  = -1;                                    // serial of the last fact returned
+
+                /** finds the position of the iterator after the rows have been moved */
+                private void sync() {
+                    if (cp == compactions)
+                        return;
+                    cp = compactions;
+                    if (rs == null) {
+                        i = front ? rowOf(cur) - 1 : rowOf(cur + 1);
+                    } else {
+                        rs = new int[selSerials.length];
+                        for (int k=0; k<rs.length; k++)
+                            rs[k] = rowOfFact(selSerials[k]);
+                    }
+                }
+
+                private void advance() {
+                    if (rs == null)
+                        cur = serials[i];
+                    i += front ? -1 : 1;
+                }
+
+                public boolean hasNext() {
+                    sync();
+                    while (true) {
+                        if (front && i < 0) {
+                            front = false;
+                            i     = 0;
+                            cur   = -1;
+                        }
+                        if (!front && i >= (rs == null ? rows : rs.length))
+                            return false;
+                        int row = rs == null ? i : rs[i];
+                        if (row >= 0 && first[row] == front && sources[row] >= 0 && (source < 0 || sources[row] == source))
+                            return true;
+                        advance();
+                    }
+                }
+                public Literal next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    int row = rs == null ? i : rs[i];
+                    last = serials[row];
+                    advance();
+                    return literal(row);
+                }
+                public void remove() {
+                    int row = last < 0 ? -1 : rowOfFact(last);
+                    if (row < 0)
+                        throw new IllegalStateException();
+                    FactTable.this.remove(row);
+                    last = -1;
+                }
+            };
+        }
+    }
+
+    /**
+     * index of the rows of a table by the value of one column (a hash table from the values to
+     * chains of rows in ascending order). Removed rows are skipped, they are only removed from
+     * the chains when the table is compacted.
+     */
+    static final class ColumnIndex {
+        long[] values;
+        int[]  heads;    // first row with the value + 1, 0 is empty
+        int[]  tails;    // last row with the value
+        int[]  counts;   // number of facts with the value
+        int    used = 0; // number of values
+        int[]  next;     // next row with the same value, -1 at the end of the chain
+
+        ColumnIndex(int capacity) {
+            values = new long[16];
+            heads  = new int[16];
+            tails  = new int[16];
+            counts = new int[16];
+            next   = new int[capacity];
+        }
+
+        private int slot(long v) {
+            int mask = heads.length - 1;
+            int s = FactTable.hash(v) & mask;
+            while (heads[s] != 0 && values[s] != v)
+                s = (s + 1) & mask;
+            return s;
+        }
+
+        /** returns the number of facts with value v */
+        int count(long v) {
+            int s = slot(v);
+            return heads[s] == 0 ? 0 : counts[s];
+        }
+
+        /** returns the first row with value v, -1 if there is no such row */
+        int head(long v) {
+            return heads[slot(v)] - 1;
+        }
+
+        void add(long v, int row) {
+            if (row >= next.length)
+                next = Arrays.copyOf(next, Math.max(row + 1, next.length * 2));
+            next[row] = -1;
+            int s = slot(v);
+            if (heads[s] == 0) {
+                values[s] = v;
+                heads[s]  = row + 1;
+                counts[s] = 1;
+                tails[s]  = row;
+                if (++used * 2 > heads.length)
+                    resize();
+            } else {
+                next[tails[s]] = row;
+                tails[s] = row;
+                counts[s]++;
+            }
+        }
+
+        void remove(long v) {
+            int s = slot(v);
+            if (heads[s] != 0)
+                counts[s]--;
+        }
+
+        private void resize() {
+            long[] ovalues = values;
+            int[]  oheads  = heads;
+            int[]  otails  = tails;
+            int[]  ocounts = counts;
+            int n = heads.length * 2;
+            values = new long[n];
+            heads  = new int[n];
+            tails  = new int[n];
+            counts = new int[n];
+            for (int i=0; i<oheads.length; i++) {
+                if (oheads[i] != 0) {
+                    int s = slot(ovalues[i]);
+                    values[s] = ovalues[i];
+                    heads[s]  = oheads[i];
+                    tails[s]  = otails[i];
+                    counts[s] = ocounts[i];
+                }
+            }
+        }
+    }
+}
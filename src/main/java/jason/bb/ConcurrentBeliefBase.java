@@ -0,0 +1,180 @@
+package jason.bb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import jason.asSyntax.Atom;
+import jason.asSyntax.Literal;
+import jason.asSyntax.PredicateIndicator;
+import jason.asSyntax.SharedLiteral;
+
+/**
+ * A version of the default belief base where queries can run concurrently with
+ * changes in the BB, as happens with the <code>asynch</code> and
+ * <code>asynch_shared</code> infrastructures, where sense, deliberate and act
+ * run in different threads.
+ *
+ * <ul>
+ * <li>Changes (add, remove, abolish, ...) are serialised using the BB lock (see {@link #getLock()}).</li>
+ * <li>Queries neither lock nor copy the BB: getCandidateBeliefs returns a weakly consistent
+ *     iterator on the lists of the BB (it never throws ConcurrentModificationException and
+ *     may or may not see the changes done after its creation); iterator returns a snapshot
+ *     of all beliefs.</li>
+ * <li>Beliefs in the BB are never changed: when the annotations of a belief change, a new copy
+ *     of the belief replaces the old one, so a query that is using the old one is not affected.</li>
+ * <li>The set of percepts is a concurrent set.</li>
+ * </ul>
+ *
+ * <p>E.g. in a .mas2j project file:<br/>
+ * <code>agents: bob beliefBaseClass jason.bb.ConcurrentBeliefBase;</code>
+ *
+ * <p>Since context evaluation does not block belief update with this BB, the reasoning
+ * cycle does not synchronise sense and deliberate (see {@link #supportsConcurrentQueries()}).
+ */
+public class ConcurrentBeliefBase extends DefaultBeliefBase {
+
+    public ConcurrentBeliefBase() {
+        percepts = new PerceptsSet(true);
+    }
+
+    @Override
+    public boolean supportsConcurrentQueries() {
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (getLock()) {
+            super.clear();
+        }
+    }
+
+    @Override
+    protected boolean add(Literal l, boolean addInEnd) {
+        synchronized (getLock()) {
+            Literal bl = contains(l);
+            if (bl != null && !bl.isRule()) {
+                if (l instanceof SharedLiteral) // importAnnots removes from l the annots already in bl
+                    l = l.copy();
+                // add only annots, in a copy of the belief
+                Literal nbl = bl.copy();
+                if (nbl.importAnnots(l)) {
+                    replace(bl, nbl);
+                    if (l.hasAnnot(TPercept)) {
+                        percepts.add(nbl);
+                    }
+                    return true;
+                }
+                return false;
+            } else {
+                return super.add(l, addInEnd);
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(Literal l) {
+        synchronized (getLock()) {
+            Literal bl = contains(l);
+            if (bl != null && l.hasSubsetAnnot(bl)) {
+                if (l.hasAnnot(TPercept)) {
+                    percepts.remove(bl);
+                }
+                Literal nbl = bl.copy();
+                boolean result = nbl.delAnnots(l.getAnnots());
+                if (nbl.hasSource()) {
+                    if (result)
+                        replace(bl, nbl);
+                    return result;
+                } else {
+                    return removeFromEntry(nbl);
+                }
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public boolean abolish(Atom namespace, PredicateIndicator pi) {
+        synchronized (getLock()) {
+            return super.abolish(namespace, pi);
+        }
+    }
+
+    @Override
+    Iterator<Literal> perceptsIterator(final Iterator<Literal> i) {
+        return new Iterator<Literal>() {
+            Literal current = null;
+            public boolean hasNext() {
+                return i.hasNext();
+            }
+            public Literal next() {
+                current = i.next();
+                return current;
+            }
+            public void remove() {
+                synchronized (getLock()) {
+                    i.remove();
+                    percepts.remove(current);
+                    Literal nbl = current.copy();
+                    nbl.delAnnot(TPercept);
+                    if (nbl.hasSource())
+                        replace(current, nbl);
+                    else
+                        removeFromEntry(nbl);
+                }
+            }
+        };
+    }
+
+    /** returns an iterator on a copy of all beliefs */
+    @Override
+    public Iterator<Literal> iterator() {
+        final List<Literal> all;
+        synchronized (getLock()) {
+            all = new ArrayList<Literal>(size());
+            Iterator<Literal> i = super.iterator();
+            while (i.hasNext())
+                all.add(i.next());
+        }
+        final Iterator<Literal> i = all.iterator();
+        return new Iterator<Literal>() {
+            Literal current = null;
+            public boolean hasNext() {
+                return i.hasNext();
+            }
+            public Literal next() {
+                current = i.next();
+                return current;
+            }
+            public void remove() {
+                synchronized (getLock()) {
+                    Literal bl = contains(current);
+                    if (bl == current) { // it was not changed after the snapshot
+                        bl = bl.copy();
+                        bl.clearAnnots();
+                        removeFromEntry(bl);
+                        percepts.remove(current);
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    void removeBelief(Literal l) {
+        synchronized (getLock()) {
+            super.removeBelief(l);
+        }
+    }
+
+    @Override
+    public BeliefBase clone() {
+        synchronized (getLock()) {
+            ConcurrentBeliefBase bb = new ConcurrentBeliefBase();
+            copyTo(bb);
+            return bb;
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package jason.bb;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,10 +22,20 @@ import jason.asSemantics.Agent;
 import jason.asSemantics.Unifier;
 import jason.asSyntax.Atom;
 import jason.asSyntax.Literal;
+import jason.asSyntax.LiteralImpl;
 import jason.asSyntax.PredicateIndicator;
+import jason.asSyntax.SharedLiteral;
+import jason.asSyntax.Term;
+import jason.asSyntax.VarTerm;
 
 /**
  * Default implementation of Jason BB.
+ *
+ * <p>Beliefs are grouped by predicate indicator. Large groups are also indexed
+ * by the value of some of their arguments (by default, the first argument), so
+ * that a query like <code>pos(agent42,X,Y)</code> only considers the beliefs
+ * whose first argument is <code>agent42</code>. The arguments used as index
+ * can be changed by {@link #setIndexedArgs(PredicateIndicator, int...)}.
  */
 public class DefaultBeliefBase extends BeliefBase {
 
@@ -37,10 +49,25 @@ public class DefaultBeliefBase extends BeliefBase {
 
     private Map<Atom, Map<PredicateIndicator, BelEntry>> nameSpaces = new ConcurrentHashMap<Atom, Map<PredicateIndicator,BelEntry>>();
 
-    private int size = 0;
+    /** the entries of each predicate indicator (without namespace) in all namespaces, used for queries with a variable namespace */
+    private Map<PredicateIndicator, Map<Atom, BelEntry>> entriesInNSs = new ConcurrentHashMap<PredicateIndicator, Map<Atom,BelEntry>>();
+
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    /** arguments (starting from 0) used to index beliefs of some predicate indicators */
+    private Map<PredicateIndicator, int[]> indexedArgs = new ConcurrentHashMap<PredicateIndicator, int[]>();
+
+    /** whether to index the first argument of the beliefs not in indexedArgs */
+    private boolean indexFirstArg = true;
+
+    /** number of beliefs that an entry must have to build its indexes */
+    static final int MIN_SIZE_TO_INDEX = 16;
+
+    private static final int[] firstArg = new int[] { 0 };
+    private static final int[] noArgs   = new int[0];
 
     /** set of beliefs with percept annot, used to improve performance of buf */
-    protected Set<Literal> percepts = new HashSet<Literal>();
+    protected Set<Literal> percepts = new PerceptsSet(false);
 
     public DefaultBeliefBase() {
         nameSpaces.put(Literal.DefaultNS, belsMapDefaultNS);
@@ -53,6 +80,36 @@ public class DefaultBeliefBase extends BeliefBase {
         }
     }
 
+    /**
+     * Sets the arguments (starting from 0) used to index the beliefs of <i>pi</i>,
+     * e.g. <code>setIndexedArgs(new PredicateIndicator("pos",3), 0, 2)</code> indexes
+     * pos/3 by its first and third arguments. No argument means no index for pi.
+     *
+     * It should be called before beliefs of pi are added in the BB.
+     */
+    public void setIndexedArgs(PredicateIndicator pi, int... args) {
+        indexedArgs.put(pi, args);
+    }
+
+    /** enables/disables the index by the first argument for beliefs without specific index configuration */
+    public void setIndexFirstArg(boolean b) {
+        indexFirstArg = b;
+    }
+
+    private int[] getIndexedArgs(PredicateIndicator pi) {
+        int[] args = indexedArgs.get(pi);
+        if (args != null) {
+            for (int a: args)
+                if (a < 0 || a >= pi.getArity())
+                    return noArgs;
+            return args;
+        } else if (indexFirstArg && pi.getArity() > 0) {
+            return firstArg;
+        } else {
+            return noArgs;
+        }
+    }
+
     @Override
     public Set<Atom> getNameSpaces() {
         return nameSpaces.keySet();
@@ -60,21 +117,40 @@ public class DefaultBeliefBase extends BeliefBase {
 
     @Override
     public int size() {
-        return size;
+        return size.get();
     }
 
     @Override
     public void clear() {
-        size = 0;
+        for (Map<PredicateIndicator, BelEntry> belsMap: nameSpaces.values())
+            for (BelEntry entry: belsMap.values())
+                entry.release();
+        size.set(0);
         percepts.clear();
         belsMapDefaultNS.clear();
         nameSpaces.clear();
         nameSpaces.put(Literal.DefaultNS, belsMapDefaultNS);
+        entriesInNSs.clear();
     }
 
     @Override
     public Iterator<Literal> getPercepts() {
-        final Iterator<Literal> i = percepts.iterator();
+        return perceptsIterator(percepts.iterator());
+    }
+
+    /** Returns the beliefs of some predicate indicator that have "percept" as source */
+    public Iterator<Literal> getPercepts(PredicateIndicator pi) {
+        if (percepts instanceof PerceptsSet)
+            return perceptsIterator(((PerceptsSet)percepts).iterator(pi));
+        List<Literal> r = new ArrayList<Literal>();
+        for (Literal l: percepts)
+            if (l.getPredicateIndicator().equals(pi))
+                r.add(l);
+        return perceptsIterator(r.iterator());
+    }
+
+    /** returns an iterator for the percepts of i where remove also removes the percept from the BB */
+    Iterator<Literal> perceptsIterator(final Iterator<Literal> i) {
         return new Iterator<Literal>() {
             Literal current = null;
             public boolean hasNext() {
@@ -90,6 +166,17 @@ public class DefaultBeliefBase extends BeliefBase {
                 }
                 // remove from percepts
                 i.remove();
+                percepts.remove(current); // in case i is not an iterator of percepts
+
+                if (current instanceof SharedLiteral) {
+                    Literal nbl = current.copy();
+                    nbl.delAnnot(BeliefBase.TPercept);
+                    if (nbl.hasSource())
+                        replace(current, nbl);
+                    else
+                        removeFromEntry(nbl);
+                    return;
+                }
 
                 // remove the percept annot
                 current.delAnnot(BeliefBase.TPercept);
@@ -98,7 +185,6 @@ public class DefaultBeliefBase extends BeliefBase {
                 removeFromEntry(current);
             }
         };
-        //return ((Set<Literal>)percepts.clone()).iterator();
     }
 
     Set<Literal> getPerceptsSet() {
@@ -123,7 +209,21 @@ public class DefaultBeliefBase extends BeliefBase {
 
         Literal bl = contains(l);
         if (bl != null && !bl.isRule()) {
+            if (l instanceof SharedLiteral) // importAnnots removes from l the annots already in bl
+                l = l.copy();
+            if (bl instanceof SharedLiteral) { // it can not be changed, use a copy
+                Literal nbl = bl.copy();
+                if (!nbl.importAnnots(l))
+                    return false;
+                replace(bl, nbl);
+                bl = nbl;
+                if (l.hasAnnot(TPercept)) {
+                    percepts.add(bl);
+                }
+                return true;
+            }
             // add only annots
+            bl = getBelToChange(bl);
             if (bl.importAnnots(l)) {
                 // check if it needs to be added in the percepts list
                 // (note that l contains only the annots imported)
@@ -135,7 +235,8 @@ public class DefaultBeliefBase extends BeliefBase {
         } else {
             // new bel
 
-            l = l.copy(); // we need to clone l for the consequent event to not have a ref to this bel (which may change before the event is processed); see bug from Viviana Marcardi
+            if (!(l instanceof SharedLiteral)) // shared literals do not change, no copy is needed
+                l = copyBel(l); // we need to clone l for the consequent event to not have a ref to this bel (which may change before the event is processed); see bug from Viviana Marcardi
             BelEntry entry = provideBelEntry(l);
             entry.add(l, addInEnd);
 
@@ -144,12 +245,20 @@ public class DefaultBeliefBase extends BeliefBase {
                 percepts.add(l);
             }
 
-            size++;
+            size.incrementAndGet();
             return true;
         }
         return false;
     }
 
+    /** copy of a new belief; for ground beliefs, only the literal is copied, its ground arguments are shared (they are not changed in the BB) */
+    private static Literal copyBel(Literal l) {
+        if (l.isGround() && !l.isRule() && l instanceof LiteralImpl)
+            return (Literal)l.capply(new Unifier());
+        else
+            return l.copy();
+    }
+
     private BelEntry provideBelEntry(Literal l) {
         Map<PredicateIndicator, BelEntry> belsMap = belsMapDefaultNS;
         if (l.getNS() != Literal.DefaultNS) {
@@ -161,8 +270,18 @@ public class DefaultBeliefBase extends BeliefBase {
         }
         BelEntry entry = belsMap.get(l.getPredicateIndicator());
         if (entry == null) {
-            entry = new BelEntry();
+            entry = new BelEntry(getIndexedArgs(l.getPredicateIndicator()));
             belsMap.put(l.getPredicateIndicator(), entry);
+
+            PredicateIndicator pi = withoutNS(l.getPredicateIndicator());
+            Map<Atom, BelEntry> entries = entriesInNSs.get(pi);
+            if (entries == null) {
+                entries = new ConcurrentHashMap<Atom, BelEntry>();
+                entriesInNSs.put(pi, entries);
+            }
+            entries.put(l.getNS(), entry);
+        } else if (entry.isShared()) {
+            entry = copyOnWrite(belsMap, l.getNS(), l.getPredicateIndicator(), entry);
         }
         return entry;
     }
@@ -173,9 +292,20 @@ public class DefaultBeliefBase extends BeliefBase {
         if (bl != null) {
             if (l.hasSubsetAnnot(bl)) { // e.g. removing b[a] or b[a,d] from BB b[a,b,c]
                 // second case fails
+                bl = getBelToChange(bl);
                 if (l.hasAnnot(TPercept)) {
                     percepts.remove(bl);
                 }
+                if (bl instanceof SharedLiteral) {
+                    Literal nbl = bl.copy();
+                    boolean result = nbl.delAnnots(l.getAnnots());
+                    if (nbl.hasSource()) {
+                        if (result)
+                            replace(bl, nbl);
+                        return result;
+                    }
+                    return removeFromEntry(nbl);
+                }
                 boolean result = bl.delAnnots(l.getAnnots()); // note that l annots can be empty, in this case, nothing is deleted!
                 return removeFromEntry(bl) || result;
             }
@@ -183,22 +313,74 @@ public class DefaultBeliefBase extends BeliefBase {
         return false;
     }
 
-    private boolean removeFromEntry(Literal l) {
+    boolean removeFromEntry(Literal l) {
         if (l.hasSource()) {
             return false;
         } else {
             Map<PredicateIndicator, BelEntry> belsMap = l.getNS() == Literal.DefaultNS ? belsMapDefaultNS : nameSpaces.get(l.getNS());
             PredicateIndicator key = l.getPredicateIndicator();
             BelEntry entry = belsMap.get(key);
+            if (entry.isShared())
+                entry = copyOnWrite(belsMap, l.getNS(), key, entry);
             entry.remove(l);
             if (entry.isEmpty()) {
                 belsMap.remove(key);
+                removeFromEntriesInNSs(l.getNS(), key);
             }
-            size--;
+            size.decrementAndGet();
             return true;
         }
     }
 
+    private void removeFromEntriesInNSs(Atom ns, PredicateIndicator pi) {
+        pi = withoutNS(pi);
+        Map<Atom, BelEntry> entries = entriesInNSs.get(pi);
+        if (entries != null) {
+            entries.remove(ns);
+            if (entries.isEmpty())
+                entriesInNSs.remove(pi);
+        }
+    }
+
+    private static PredicateIndicator withoutNS(PredicateIndicator pi) {
+        if (pi.getNS() == Literal.DefaultNS)
+            return pi;
+        else
+            return new PredicateIndicator(pi.getFunctor(), pi.getArity());
+    }
+
+    /**
+     * replaces the entry (shared with clones of this BB) by a copy
+     * that can be changed by this BB and returns the copy
+     */
+    private BelEntry copyOnWrite(Map<PredicateIndicator, BelEntry> belsMap, Atom ns, PredicateIndicator pi, BelEntry entry) {
+        BelEntry copy = (BelEntry)entry.clone();
+        belsMap.put(pi, copy);
+        entriesInNSs.get(withoutNS(pi)).put(ns, copy);
+        entry.release();
+        return copy;
+    }
+
+    /** returns the version of the belief bl (that is in the BB) that can be changed by this BB */
+    private Literal getBelToChange(Literal bl) {
+        Map<PredicateIndicator, BelEntry> belsMap = bl.getNS() == Literal.DefaultNS ? belsMapDefaultNS : nameSpaces.get(bl.getNS());
+        BelEntry entry = belsMap.get(bl.getPredicateIndicator());
+        if (entry.isShared())
+            return copyOnWrite(belsMap, bl.getNS(), bl.getPredicateIndicator(), entry).contains(bl);
+        return bl;
+    }
+
+    /** replaces the belief bl (that is in the BB) by nbl, keeping its place in the BB order */
+    void replace(Literal bl, Literal nbl) {
+        Map<PredicateIndicator, BelEntry> belsMap = bl.getNS() == Literal.DefaultNS ? belsMapDefaultNS : nameSpaces.get(bl.getNS());
+        BelEntry entry = belsMap.get(bl.getPredicateIndicator());
+        if (entry.isShared())
+            entry = copyOnWrite(belsMap, bl.getNS(), bl.getPredicateIndicator(), entry);
+        entry.replace(bl, nbl);
+        if (percepts.remove(bl))
+            percepts.add(nbl);
+    }
+
     @Override
     public Iterator<Literal> iterator() {
         final Iterator<Map<PredicateIndicator, BelEntry>> ins = nameSpaces.values().iterator();
@@ -206,7 +388,9 @@ public class DefaultBeliefBase extends BeliefBase {
 
             Iterator<BelEntry> ibe = ins.next().values().iterator();
             Iterator<Literal>  il  = null;
+            BelEntry           be  = null; // entry of il
             Literal            l   = null;
+            BelEntry           lbe = null; // entry of l
             {
                 goNext();
             }
@@ -218,7 +402,8 @@ public class DefaultBeliefBase extends BeliefBase {
             private void goNext() {
                 while (il == null || !il.hasNext()) {
                     if (ibe.hasNext()) {
-                        il = ibe.next().list.iterator();
+                        be = ibe.next();
+                        il = be.list.iterator();
                     } else if (ins.hasNext()) {
                         ibe = ins.next().values().iterator();
                     } else {
@@ -228,17 +413,22 @@ public class DefaultBeliefBase extends BeliefBase {
             }
 
             public Literal next() {
-                l = il.next(); // store it for remove
+                l   = il.next(); // store it for remove
+                lbe = be;
                 goNext();
                 return l;
             }
 
             public void remove() {
-                il.remove();
+                if (lbe.isShared()) {
+                    Map<PredicateIndicator, BelEntry> belsMap = l.getNS() == Literal.DefaultNS ? belsMapDefaultNS : nameSpaces.get(l.getNS());
+                    lbe = copyOnWrite(belsMap, l.getNS(), l.getPredicateIndicator(), lbe);
+                }
+                lbe.remove(l); // also removes l from the indexes of the entry
                 if (l.hasAnnot(TPercept)) {
                     percepts.remove(l);
                 }
-                size--;
+                size.decrementAndGet();
             }
         };
     }
@@ -247,14 +437,20 @@ public class DefaultBeliefBase extends BeliefBase {
     public boolean abolish(Atom namespace, PredicateIndicator pi) {
         BelEntry entry = nameSpaces.get(namespace).remove(pi);
         if (entry != null) {
-            size -= entry.size();
+            size.addAndGet(-entry.size());
+            removeFromEntriesInNSs(namespace, pi);
+            entry.release();
 
             // remove also in percepts list!
-            Iterator<Literal> i = percepts.iterator();
-            while (i.hasNext()) {
-                Literal l = i.next();
-                if (l.getPredicateIndicator().equals(pi))
-                    i.remove();
+            if (percepts instanceof PerceptsSet) {
+                ((PerceptsSet)percepts).removeAll(pi);
+            } else {
+                Iterator<Literal> i = percepts.iterator();
+                while (i.hasNext()) {
+                    Literal l = i.next();
+                    if (l.getPredicateIndicator().equals(pi))
+                        i.remove();
+                }
             }
             return true;
         } else {
@@ -285,7 +481,7 @@ public class DefaultBeliefBase extends BeliefBase {
 
         BelEntry entry = pi2entry.get(pi);
         if (entry != null)
-            return entry.list.iterator();
+            return iteratorFor(entry.list);
         else
             return null;
     }
@@ -303,8 +499,17 @@ public class DefaultBeliefBase extends BeliefBase {
                     l = (Literal)l.capply(u);
                     ns = l.getNS();
                 }
-                if (ns.isVar()) { // still a var
-                    return iterator();
+                if (ns.isVar()) { // still a var, uses the entries of l's PI in all namespaces
+                    Map<Atom, BelEntry> entries = entriesInNSs.get(withoutNS(l.getPredicateIndicator()));
+                    if (entries == null)
+                        return null;
+                    List<Iterator<Literal>> its = new ArrayList<Iterator<Literal>>(entries.size());
+                    for (BelEntry entry: entries.values()) {
+                        LiteralList candidates = entry.getCandidates(l, u);
+                        if (candidates != null)
+                            its.add(iteratorFor(candidates));
+                    }
+                    return concat(its);
                 }
                 belsMap = nameSpaces.get(ns);
             }
@@ -313,26 +518,143 @@ public class DefaultBeliefBase extends BeliefBase {
             BelEntry entry = belsMap.get(l.getPredicateIndicator());
             if (entry != null) {
                 //System.out.println(l.getNS() + "::::"+ l+ "  ==> " + entry.list);
-                return entry.list.iterator();
+                LiteralList candidates = entry.getCandidates(l, u);
+                if (candidates == null)
+                    return Collections.<Literal>emptyList().iterator();
+                else
+                    return iteratorFor(candidates);
             } else {
                 return null;
             }
         }
     }
 
+    /**
+     * returns the iterator used for the beliefs of an entry (all of them or those in one of its indexes),
+     * its remove removes the belief from the BB (and so from the entry and all its indexes)
+     */
+    Iterator<Literal> iteratorFor(LiteralList l) {
+        final Iterator<Literal> i = l.iterator();
+        return new Iterator<Literal>() {
+            Literal current = null;
+            public boolean hasNext() {
+                return i.hasNext();
+            }
+            public Literal next() {
+                current = i.next();
+                return current;
+            }
+            public void remove() {
+                if (current == null)
+                    throw new IllegalStateException();
+                removeBelief(current);
+                current = null;
+            }
+        };
+    }
+
+    /** removes the belief l (the object in the BB) with all its annotations */
+    void removeBelief(Literal l) {
+        Map<PredicateIndicator, BelEntry> belsMap = l.getNS() == Literal.DefaultNS ? belsMapDefaultNS : nameSpaces.get(l.getNS());
+        if (belsMap == null)
+            return;
+        PredicateIndicator key = l.getPredicateIndicator();
+        BelEntry entry = belsMap.get(key);
+        if (entry == null || entry.contains(l) != l) // already removed or replaced
+            return;
+        if (entry.isShared())
+            entry = copyOnWrite(belsMap, l.getNS(), key, entry);
+        entry.remove(l);
+        if (entry.isEmpty()) {
+            belsMap.remove(key);
+            removeFromEntriesInNSs(l.getNS(), key);
+        }
+        if (l.hasAnnot(TPercept))
+            percepts.remove(l);
+        size.decrementAndGet();
+    }
+
     public String toString() {
         return nameSpaces.toString();
     }
 
+    /** an iterator that goes through all elements of the given iterators (null iterators are ignored) */
+    static Iterator<Literal> concat(final List<Iterator<Literal>> its) {
+        return new Iterator<Literal>() {
+            int i = 0;
+            Iterator<Literal> last = null; // the iterator of the last element returned
+
+            public boolean hasNext() {
+                while (i < its.size()) {
+                    Iterator<Literal> c = its.get(i);
+                    if (c != null && c.hasNext())
+                        return true;
+                    i++;
+                }
+                return false;
+            }
+            public Literal next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                last = its.get(i);
+                return last.next();
+            }
+            public void remove() {
+                if (last == null)
+                    throw new IllegalStateException();
+                last.remove();
+            }
+        };
+    }
+
     @Override
     public BeliefBase clone() {
         DefaultBeliefBase bb = new DefaultBeliefBase();
-        for (Literal b: this) {
-            bb.add(1, b.copy());
-        }
+        copyTo(bb);
         return bb;
     }
 
+    /** copies the configuration and the beliefs of this BB into bb */
+    void copyTo(DefaultBeliefBase bb) {
+        bb.indexedArgs.putAll(this.indexedArgs);
+        bb.indexFirstArg = this.indexFirstArg;
+
+        // entries with percepts are copied, the others are shared by both BBs until one of them
+        // changes the entry (copy on write), so shared entries never have percepts
+        Set<PredicateIndicator> withPercepts = new HashSet<PredicateIndicator>();
+        if (percepts instanceof PerceptsSet) {
+            withPercepts.addAll(((PerceptsSet)percepts).getPredicateIndicators());
+        } else {
+            for (Literal p: percepts)
+                withPercepts.add(p.getPredicateIndicator());
+        }
+
+        for (Atom ns: nameSpaces.keySet()) {
+            Map<PredicateIndicator, BelEntry> belsMap = ns == Literal.DefaultNS ? bb.belsMapDefaultNS : new ConcurrentHashMap<PredicateIndicator, BelEntry>();
+            bb.nameSpaces.put(ns, belsMap);
+            for (Map.Entry<PredicateIndicator, BelEntry> e: nameSpaces.get(ns).entrySet()) {
+                BelEntry entry = e.getValue();
+                if (withPercepts.contains(e.getKey())) {
+                    entry = (BelEntry)entry.clone();
+                    for (Literal l: entry.list)
+                        if (l.hasAnnot(TPercept))
+                            bb.percepts.add(l);
+                } else {
+                    entry.share();
+                }
+                belsMap.put(e.getKey(), entry);
+                PredicateIndicator pi = withoutNS(e.getKey());
+                Map<Atom, BelEntry> entries = bb.entriesInNSs.get(pi);
+                if (entries == null) {
+                    entries = new ConcurrentHashMap<Atom, BelEntry>();
+                    bb.entriesInNSs.put(pi, entries);
+                }
+                entries.put(ns, entry);
+                bb.size.addAndGet(entry.size());
+            }
+        }
+    }
+
     @Override
     public Element getAsDOM(Document document) {
         int tries = 0;
@@ -372,26 +694,227 @@ public class DefaultBeliefBase extends BeliefBase {
         return ebels;
     }
 
+    /**
+     * Returns the term used as key in the arguments' index, or null if t cannot be
+     * used (only numbers, strings, and atoms are keys, since unification for them is equality)
+     */
+    static Term getIndexKey(Term t, Unifier u) {
+        if (t.isVar()) {
+            if (u == null || ((VarTerm)t).negated() || ((VarTerm)t).hasAnnot())
+                return null;
+            t = u.get((VarTerm)t);
+            if (t == null)
+                return null;
+        }
+        if (t.isArithExpr())
+            return null;
+        if (t.isNumeric() || t.isString())
+            return t;
+        if (t.isAtom() && !((Atom)t).getNS().isVar())
+            return t;
+        return null;
+    }
+
+    /** set of percepts indexed by their predicate indicator */
+    static final class PerceptsSet extends AbstractSet<Literal> {
+        private final Map<PredicateIndicator, Set<Literal>> byPI;
+        private final boolean       concurrent;
+        private final AtomicInteger size = new AtomicInteger(0);
+
+        PerceptsSet(boolean concurrent) {
+            this.concurrent = concurrent;
+            if (concurrent)
+                byPI = new ConcurrentHashMap<PredicateIndicator, Set<Literal>>();
+            else
+                byPI = new HashMap<PredicateIndicator, Set<Literal>>();
+        }
+
+        @Override
+        public boolean add(Literal l) {
+            PredicateIndicator pi = l.getPredicateIndicator();
+            Set<Literal> s = byPI.get(pi);
+            if (s == null) {
+                s = concurrent ? Collections.newSetFromMap(new ConcurrentHashMap<Literal, Boolean>()) : new HashSet<Literal>();
+                byPI.put(pi, s);
+            }
+            if (s.add(l)) {
+                size.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (o instanceof Literal) {
+                // the (empty) set of pi is kept, so that iterators are not affected
+                Set<Literal> s = byPI.get(((Literal)o).getPredicateIndicator());
+                if (s != null && s.remove(o)) {
+                    size.decrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof Literal) {
+                Set<Literal> s = byPI.get(((Literal)o).getPredicateIndicator());
+                return s != null && s.contains(o);
+            }
+            return false;
+        }
+
+        /** removes all percepts of pi */
+        void removeAll(PredicateIndicator pi) {
+            Set<Literal> s = byPI.remove(pi);
+            if (s != null)
+                size.addAndGet(-s.size());
+        }
+
+        /** returns the predicate indicators of the percepts in the set */
+        Set<PredicateIndicator> getPredicateIndicators() {
+            Set<PredicateIndicator> r = new HashSet<PredicateIndicator>();
+            for (Map.Entry<PredicateIndicator, Set<Literal>> e: byPI.entrySet())
+                if (!e.getValue().isEmpty())
+                    r.add(e.getKey());
+            return r;
+        }
+
+        @Override
+        public void clear() {
+            byPI.clear();
+            size.set(0);
+        }
+
+        @Override
+        public int size() {
+            return size.get();
+        }
+
+        /** iterator for the percepts of pi */
+        Iterator<Literal> iterator(PredicateIndicator pi) {
+            Set<Literal> s = byPI.get(pi);
+            if (s == null)
+                return Collections.<Literal>emptyList().iterator();
+            return new SizeUpdateIterator(s.iterator());
+        }
+
+        @Override
+        public Iterator<Literal> iterator() {
+            List<Iterator<Literal>> its = new ArrayList<Iterator<Literal>>(byPI.size());
+            for (Set<Literal> s: byPI.values())
+                its.add(new SizeUpdateIterator(s.iterator()));
+            return concat(its);
+        }
+
+        /** iterator that updates the size of the set on remove */
+        private final class SizeUpdateIterator implements Iterator<Literal> {
+            final Iterator<Literal> i;
+            SizeUpdateIterator(Iterator<Literal> i) {
+                this.i = i;
+            }
+            public boolean hasNext() {
+                return i.hasNext();
+            }
+            public Literal next() {
+                return i.next();
+            }
+            public void remove() {
+                i.remove();
+                size.decrementAndGet();
+            }
+        }
+    }
+
     /** each predicate indicator has one BelEntry assigned to it */
     final class BelEntry {
 
-        final private Deque<Literal> list = new LinkedBlockingDeque<Literal>();  // maintains the order of the beliefs
-        final private Map<StructureWrapperForLiteral,Literal> map = new ConcurrentHashMap<StructureWrapperForLiteral,Literal>(); // to find content faster
+        final private LiteralList list = new LiteralList();  // maintains the order of the beliefs
+        final private Map<StructureWrapperForLiteral,LiteralList.Node> map = new ConcurrentHashMap<StructureWrapperForLiteral,LiteralList.Node>(); // to find content (and its node in the list) faster
+
+        final private int[] indexedArgs;
+        private volatile ArgIndex[] indexes = null; // built when the entry becomes large (volatile for the queries of ConcurrentBeliefBase)
+
+        final private AtomicInteger refs = new AtomicInteger(1); // number of BBs using this entry (see copyTo)
+
+        BelEntry(int[] indexedArgs) {
+            this.indexedArgs = indexedArgs;
+        }
 
         public void add(Literal l, boolean addInEnd) {
-            map.put(new StructureWrapperForLiteral(l), l);
-            if (addInEnd) {
-                list.addLast(l);
-            } else {
-                list.addFirst(l);
+            LiteralList.Node n = addInEnd ? list.addLast(l) : list.addFirst(l);
+            map.put(new StructureWrapperForLiteral(l), n);
+            if (indexes != null) {
+                n.inIndexes = new LiteralList.Node[indexes.length];
+                for (int i=0; i<indexes.length; i++)
+                    n.inIndexes[i] = indexes[i].add(l, addInEnd);
+            } else if (indexedArgs.length > 0 && map.size() >= MIN_SIZE_TO_INDEX) {
+                buildIndexes();
             }
         }
 
         public void remove(Literal l) {
-            Literal linmap = map.remove(new StructureWrapperForLiteral(l));
-            if (linmap != null) {
-                list.remove(linmap);
+            LiteralList.Node n = map.remove(new StructureWrapperForLiteral(l));
+            if (n != null) {
+                list.remove(n);
+                if (indexes != null)
+                    for (int i=0; i<indexes.length; i++)
+                        indexes[i].remove(n.getLiteral(), n.inIndexes[i]);
+            }
+        }
+
+        /** replaces l by nl (that is equal to l as structure) in the same place of the list and indexes */
+        public void replace(Literal l, Literal nl) {
+            StructureWrapperForLiteral key = new StructureWrapperForLiteral(l);
+            LiteralList.Node n = map.get(key);
+            if (n != null) {
+                LiteralList.Node nn = list.replace(n, nl);
+                if (indexes != null) {
+                    nn.inIndexes = new LiteralList.Node[indexes.length];
+                    for (int i=0; i<indexes.length; i++)
+                        if (n.inIndexes[i] != null)
+                            nn.inIndexes[i] = indexes[i].index.get(getIndexKey(l.getTerm(indexes[i].arg), null)).replace(n.inIndexes[i], nl);
+                }
+                map.put(key, nn);
+            }
+        }
+
+        private void buildIndexes() {
+            ArgIndex[] newIndexes = new ArgIndex[indexedArgs.length];
+            for (int i=0; i<indexedArgs.length; i++)
+                newIndexes[i] = new ArgIndex(indexedArgs[i]);
+            for (Literal l: list) { // the order of the list is kept in the indexes
+                LiteralList.Node n = map.get(new StructureWrapperForLiteral(l));
+                n.inIndexes = new LiteralList.Node[newIndexes.length];
+                for (int i=0; i<newIndexes.length; i++)
+                    n.inIndexes[i] = newIndexes[i].add(l, true);
+            }
+            indexes = newIndexes;
+        }
+
+        /** returns the beliefs of this entry that may unify with l (in the BB order), null if none */
+        public LiteralList getCandidates(Literal l, Unifier u) {
+            LiteralList r = list;
+            if (indexes != null) {
+                int rSize = Integer.MAX_VALUE;
+                for (ArgIndex i: indexes) {
+                    if (i.notIndexed == 0) { // all beliefs are in the index
+                        Term key = getIndexKey(l.getTerm(i.arg), u);
+                        if (key != null) {
+                            LiteralList ci = i.index.get(key);
+                            if (ci == null)
+                                return null;
+                            if (ci.size() < rSize) {
+                                r     = ci;
+                                rSize = ci.size();
+                            }
+                        }
+                    }
+                }
             }
+            return r;
         }
 
         public int size() {
@@ -403,17 +926,32 @@ public class DefaultBeliefBase extends BeliefBase {
         }
 
         public Literal contains(Literal l) {
-            return map.get(new StructureWrapperForLiteral(l));
+            LiteralList.Node n = map.get(new StructureWrapperForLiteral(l));
+            return n == null ? null : n.getLiteral();
         }
 
         protected Object clone() {
-            BelEntry be = new BelEntry();
+            BelEntry be = new BelEntry(indexedArgs);
             for (Literal l: list) {
-                be.add(l.copy(), false);
+                be.add(l instanceof SharedLiteral ? l : l.copy(), true);
             }
             return be;
         }
 
+        /** returns true if this entry is used by more than one BB (and so can not be changed) */
+        boolean isShared() {
+            return refs.get() > 1;
+        }
+
+        void share() {
+            refs.incrementAndGet();
+        }
+
+        /** called when a BB does not use this entry anymore */
+        void release() {
+            refs.decrementAndGet();
+        }
+
         public String toString() {
             StringBuilder s = new StringBuilder();
             for (Literal l: list) {
@@ -421,5 +959,165 @@ public class DefaultBeliefBase extends BeliefBase {
             }
             return s.toString();
         }
+
+        /** index of the beliefs of the entry by the value of one argument */
+        final class ArgIndex {
+            final int arg;
+            final Map<Term, LiteralList> index = new ConcurrentHashMap<Term, LiteralList>();
+            volatile int notIndexed = 0; // number of beliefs whose argument is not a key (vars, structures, ...)
+
+            ArgIndex(int arg) {
+                this.arg = arg;
+            }
+
+            /** adds l in the index and returns its node (null if l is not indexed) */
+            LiteralList.Node add(Literal l, boolean addInEnd) {
+                Term key = getIndexKey(l.getTerm(arg), null);
+                if (key == null) {
+                    notIndexed++;
+                    return null;
+                } else {
+                    LiteralList ci = index.get(key);
+                    if (ci == null) {
+                        ci = new LiteralList();
+                        index.put(key, ci);
+                    }
+                    return addInEnd ? ci.addLast(l) : ci.addFirst(l);
+                }
+            }
+
+            void remove(Literal l, LiteralList.Node n) {
+                if (n == null) {
+                    notIndexed--;
+                } else {
+                    Term key = getIndexKey(l.getTerm(arg), null);
+                    LiteralList ci = index.get(key);
+                    if (ci != null) {
+                        ci.remove(n);
+                        if (ci.isEmpty())
+                            index.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of literals where the node of a literal is removed in constant time.
+     *
+     * Changes are synchronized and iterators are weakly consistent (as those of
+     * concurrent collections): they never throw ConcurrentModificationException and
+     * continue from the right place even if their current node is removed.
+     * Iterators do not support remove, since a belief is in several lists (the entry
+     * and its indexes) and must be removed from all of them (see BelEntry.remove).
+     */
+    static final class LiteralList implements Iterable<Literal> {
+
+        static final class Node {
+            private final Literal l;
+            private volatile Node prev, next;
+            private volatile boolean removed = false;
+
+            Node[] inIndexes = null; // the nodes of the same literal in the indexes of the entry
+
+            Node(Literal l) {
+                this.l = l;
+            }
+
+            Literal getLiteral() {
+                return l;
+            }
+        }
+
+        private final Node head = new Node(null); // sentinels
+        private final Node tail = new Node(null);
+        private volatile int size = 0;
+
+        LiteralList() {
+            head.next = tail;
+            tail.prev = head;
+        }
+
+        synchronized Node addFirst(Literal l) {
+            return linkAfter(head, l);
+        }
+
+        synchronized Node addLast(Literal l) {
+            return linkAfter(tail.prev, l);
+        }
+
+        private Node linkAfter(Node p, Literal l) {
+            Node n = new Node(l);
+            n.prev = p;
+            n.next = p.next;
+            p.next.prev = n;
+            p.next = n;
+            size++;
+            return n;
+        }
+
+        /** places l in the position of node n (that is removed), returns the node of l */
+        synchronized Node replace(Node n, Literal l) {
+            Node nn = linkAfter(n, l);
+            remove(n);
+            return nn;
+        }
+
+        /** removes the node n from the list (its next is kept for iterators placed at n) */
+        synchronized void remove(Node n) {
+            if (!n.removed) {
+                n.removed = true;
+                n.prev.next = n.next;
+                n.next.prev = n.prev;
+                size--;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        public Iterator<Literal> iterator() {
+            return new Iterator<Literal>() {
+                Node current  = head;
+                Node nextNode = null; // computed by hasNext, so that nodes removed after next() are skipped
+
+                public boolean hasNext() {
+                    if (nextNode == null) {
+                        nextNode = current.next;
+                        while (nextNode != tail && nextNode.removed)
+                            nextNode = nextNode.next;
+                    }
+                    return nextNode != tail;
+                }
+
+                public Literal next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    current  = nextNode;
+                    nextNode = null;
+                    return current.l;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException("remove the belief from its BelEntry");
+                }
+            };
+        }
+
+        public String toString() {
+            StringBuilder s = new StringBuilder("[");
+            for (Literal l: this) {
+                if (s.length() > 1)
+                    s.append(", ");
+                s.append(l);
+            }
+            s.append("]");
+            return s.toString();
+        }
     }
 }
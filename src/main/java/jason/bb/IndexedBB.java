@@ -2,14 +2,20 @@ package jason.bb;
 
 import jason.asSemantics.Agent;
 import jason.asSemantics.Unifier;
+import jason.asSyntax.Atom;
 import jason.asSyntax.Literal;
+import jason.asSyntax.PredicateIndicator;
 import jason.asSyntax.Structure;
 import jason.asSyntax.Term;
+import jason.asSyntax.VarTerm;
 import jason.bb.BeliefBase;
 import jason.bb.ChainBBAdapter;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -26,12 +32,23 @@ import java.util.Map;
  * When some belief with the same key than another belief in BB is added,
  * the most recent remains in the BB and the older is removed.
  *
+ * The beliefs are indexed by their key, so that the replacement of beliefs, contains,
+ * and getCandidateBeliefs (for queries with bound keys) do not iterate over all beliefs.
+ * Rules and beliefs whose key is not ground are not indexed: while the BB has some of them
+ * for a predicate, getCandidateBeliefs returns all beliefs of the predicate.
+ *
  * @author jomi
  */
 public class IndexedBB extends ChainBBAdapter {
 
     Map<String,Structure> indexedBels = new HashMap<String,Structure>();
-    Unifier               u = new Unifier();
+
+    // for each functor, the key of the beliefs -> belief (as added in the BB)
+    Map<String,Map<List<Term>,Literal>> indexes = new HashMap<String,Map<List<Term>,Literal>>();
+
+    // for each functor, the number of rules and beliefs without key added in the BB
+    // (it may be greater than the number in the BB, when they are removed by other means)
+    Map<String,Integer> notIndexed = new HashMap<String,Integer>();
 
     public IndexedBB() {  }
     public IndexedBB(BeliefBase next) {
@@ -43,58 +60,146 @@ public class IndexedBB extends ChainBBAdapter {
         for (int i=0; i<args.length; i++) {
             Structure bel = Structure.parse(args[i]);
             indexedBels.put(bel.getFunctor(), bel);
+            indexes.put(bel.getFunctor(), new HashMap<List<Term>,Literal>());
+            notIndexed.put(bel.getFunctor(), 0);
+        }
+    }
+
+    /** returns whether bel has the functor and arity of some constrained belief */
+    private boolean isConstrained(Literal bel) {
+        Structure kb = indexedBels.get(bel.getFunctor());
+        return kb != null && kb.getArity() == bel.getArity();
+    }
+
+    private void countNotIndexed(Literal bel, int inc) {
+        String f = bel.getFunctor();
+        notIndexed.put(f, Math.max(0, notIndexed.get(f) + inc));
+    }
+
+    /**
+     * returns the key of the belief (its namespace, signal, and key terms), or null if
+     * the belief is not constrained or its key is not ground
+     */
+    private List<Term> getKey(Literal bel, Unifier u) {
+        Structure kb = indexedBels.get(bel.getFunctor());
+        if (kb == null || kb.getArity() != bel.getArity() || bel.getNS().isVar())
+            return null;
+        List<Term> key = new ArrayList<Term>(kb.getArity()+2);
+        key.add(bel.getNS());
+        key.add(bel.negated() ? Literal.LTrue : Literal.LFalse);
+        for (int i = 0; i<kb.getArity(); i++) {
+            if (!kb.getTerm(i).isVar()) { // is key?
+                Term t = bel.getTerm(i);
+                if (t.isVar() && u != null)
+                    t = u.get((VarTerm)t);
+                if (t == null || !t.isGround())
+                    return null;
+                key.add(t);
+            }
         }
+        return key;
     }
 
-    // TODO: access indexes
+    /** returns the belief in BB that has the key, or null (entries of beliefs removed by other means are ignored) */
+    private Literal getByKey(Literal bel, List<Term> key) {
+        Literal l = indexes.get(bel.getFunctor()).get(key);
+        if (l != null)
+            return nextBB.contains(l);
+        return null;
+    }
 
     @Override
     public boolean add(Literal bel) {
-        Structure kb = indexedBels.get(bel.getFunctor());
-        if (kb != null && kb.getArity() == bel.getArity()) { // is a constrained bel?
-
-            // find the bel in BB and eventually remove it
-            u.clear();
-            Literal linbb = null;
-            boolean remove = false;
-
-            Iterator<Literal> relevant = getCandidateBeliefs(bel, null);
-            if (relevant != null) {
-                final int kbArity = kb.getArity();
-                while (relevant.hasNext() && !remove) {
-                    linbb = relevant.next();
-
-                    if (!linbb.isRule()) {
-                        // check equality of all terms that are "key"
-                        // if some key is different, no problem
-                        // otherwise, remove the current bel
-                        boolean equals = true;
-                        for (int i = 0; i<kbArity; i++) {
-                            Term kbt = kb.getTerm(i);
-                            if (!kbt.isVar()) { // is key?
-                                if (!u.unifies(bel.getTerm(i), linbb.getTerm(i))) {
-                                    equals = false;
-                                    break;
-                                }
-                            }
-                        }
-                        if (equals) {
-                            remove = true;
-                        }
-                    }
-                }
+        return add(0, bel);
+    }
+
+    @Override
+    public boolean add(int index, Literal bel) {
+        List<Term> key = bel.isRule() ? null : getKey(bel, null);
+        if (key == null) {
+            if (nextBB.add(index, bel)) {
+                if (isConstrained(bel))
+                    countNotIndexed(bel, 1);
+                return true;
             }
-            if (remove) {
-                remove(linbb);
+            return false;
+        }
+
+        // the belief with the same key is replaced by the new one
+        Literal linbb = getByKey(bel, key);
+        if (linbb != null)
+            nextBB.remove(linbb);
+        indexes.get(bel.getFunctor()).put(key, bel);
+        return nextBB.add(index, bel);
+    }
+
+    @Override
+    public Literal contains(Literal l) {
+        List<Term> key = getKey(l, null);
+        if (key != null && getByKey(l, key) == null)
+            return null;
+        return nextBB.contains(l);
+    }
+
+    @Override
+    public Iterator<Literal> getCandidateBeliefs(Literal l, Unifier u) {
+        List<Term> key = l.isVar() ? null : getKey(l, u);
+        if (key == null || notIndexed.get(l.getFunctor()) > 0) // rules and beliefs without key are only in the next BB
+            return nextBB.getCandidateBeliefs(l, u);
+        Literal linbb = getByKey(l, key);
+        if (linbb == null)
+            return Collections.<Literal>emptyList().iterator();
+        return Collections.singletonList(linbb).iterator();
+    }
+
+    @Override
+    public boolean remove(Literal l) {
+        if (nextBB.remove(l)) {
+            List<Term> key = l.isRule() ? null : getKey(l, null);
+            if (key != null) {
+                if (getByKey(l, key) == null)
+                    indexes.get(l.getFunctor()).remove(key);
+            } else if (isConstrained(l)) {
+                countNotIndexed(l, -1);
             }
+            return true;
         }
-        return super.add(bel);
+        return false;
+    }
+
+    @Override
+    public boolean abolish(PredicateIndicator pi) {
+        return abolish(Literal.DefaultNS, pi);
+    }
+
+    @Override
+    public boolean abolish(Atom namespace, PredicateIndicator pi) {
+        Map<List<Term>,Literal> index = indexes.get(pi.getFunctor());
+        if (index != null) {
+            Iterator<List<Term>> i = index.keySet().iterator();
+            while (i.hasNext())
+                if (i.next().get(0).equals(namespace))
+                    i.remove();
+        }
+        return nextBB.abolish(namespace, pi);
+    }
+
+    @Override
+    public void clear() {
+        for (Map<List<Term>,Literal> index: indexes.values())
+            index.clear();
+        for (String f: notIndexed.keySet())
+            notIndexed.put(f, 0);
+        nextBB.clear();
     }
 
     @Override
     public BeliefBase clone() {
         IndexedBB nbb = new IndexedBB(nextBB.clone());
         nbb.indexedBels = new HashMap<String,Structure>(this.indexedBels);
+        for (String f: indexes.keySet())
+            nbb.indexes.put(f, new HashMap<List<Term>,Literal>(indexes.get(f)));
+        nbb.notIndexed = new HashMap<String,Integer>(notIndexed);
         return nbb;
     }
 
@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -16,7 +17,9 @@ import java.util.logging.Logger;
 
 import jason.asSemantics.Unifier;
 import jason.asSyntax.Literal;
+import jason.asSyntax.SharedLiteral;
 import jason.asSyntax.Structure;
+import jason.bb.BeliefBase;
 
 /**
  * It is a base class for Environment, it is overridden by the user
@@ -45,6 +48,17 @@ public class Environment {
     // set of agents that already received the last version of perception
     private Set<String> uptodateAgs = Collections.synchronizedSet(new HashSet<String>());
 
+    // whether the agents are informed when their perception changes (used by event driven agents)
+    private boolean informAgsOnPerceptChanges = false;
+
+    // changes in the perception not yet perceived by the agents (used in incremental perception)
+    private boolean incrementalPerception = false;
+    private Map<String,ChangesRecord> agChanges = new ConcurrentHashMap<String, ChangesRecord>();
+
+    // common percepts -> version shared by the BB of all agents (used if sharedPercepts is true)
+    private boolean sharedPercepts = false;
+    private Map<Literal,Literal> sharedVersions = new ConcurrentHashMap<Literal, Literal>();
+
     protected ExecutorService executor; // the thread pool used to execute actions
 
     /** creates an environment class with n threads to execute actions required by the agents */
@@ -140,11 +154,7 @@ public class Environment {
         Collection<Literal> p = new ArrayList<Literal>(size);
 
         if (! percepts.isEmpty()) { // has global perception?
-            synchronized (percepts) {
-                // make a local copy of the environment percepts
-                // Note: a deep copy will be done by BB.add
-                p.addAll(percepts);
-            }
+            copyCommonPercepts(p);
         }
         if (agl != null) { // add agent personal perception
             synchronized (agl) {
@@ -155,6 +165,113 @@ public class Environment {
         return p;
     }
 
+    /**
+     * Sets whether the agents perceive only the changes in their perception
+     * (see {@link #getPerceptsChanges(String)}) instead of the full
+     * list of percepts. It should be set in the init of the environment.
+     *
+     * Environments that override getPercepts(String) should not use
+     * incremental perception.
+     */
+    public void setIncrementalPerception(boolean b) {
+        incrementalPerception = b;
+    }
+
+    public boolean isIncrementalPerception() {
+        return incrementalPerception;
+    }
+
+    /**
+     * Sets whether the agents are informed (by informAgsEnvironmentChanged) when their
+     * perception changes. Each agent is informed once after each of its perceptions.
+     * It is used by infrastructures where agents do not poll the environment
+     * (e.g. the event_driven configuration of the centralised infrastructure).
+     */
+    public void setInformAgsOnPerceptChanges(boolean b) {
+        informAgsOnPerceptChanges = b;
+    }
+
+    public boolean isInformAgsOnPerceptChanges() {
+        return informAgsOnPerceptChanges;
+    }
+
+    /** all agents need a new version of perception */
+    private void perceptsChanged() {
+        if (informAgsOnPerceptChanges) {
+            String[] ags;
+            synchronized (uptodateAgs) {
+                ags = uptodateAgs.toArray(new String[uptodateAgs.size()]);
+                uptodateAgs.clear();
+            }
+            if (ags.length > 0) // no args means all agents
+                informAgsEnvironmentChanged(ags);
+        } else {
+            uptodateAgs.clear();
+        }
+    }
+
+    /** agName needs a new version of perception */
+    private void perceptsChanged(String agName) {
+        if (uptodateAgs.remove(agName) && informAgsOnPerceptChanges)
+            informAgsEnvironmentChanged(agName);
+    }
+
+    /**
+     * Returns the changes in the percepts of an agent since the last call of
+     * this method: the new percepts and the percepts removed. In the first
+     * call, all current percepts are returned as new.
+     *
+     * It returns null if the agent's perception doesn't changed since
+     * last call.
+     *
+     * This method is to be called by TS and should not be called
+     * by other objects.
+     */
+    public PerceptsChanges getPerceptsChanges(String agName) {
+        uptodateAgs.add(agName); // so that it is informed of the next changes (see perceptsChanged)
+        ChangesRecord c = agChanges.get(agName);
+        if (c == null) {
+            // changes after this point are registered in c and may be also in the full copy
+            // (adding/removing twice does not change the BB)
+            agChanges.put(agName, new ChangesRecord());
+            return new PerceptsChanges(consultPercepts(agName), new ArrayList<Literal>());
+        }
+        return c.get();
+    }
+
+    /**
+     * Sets whether the common percepts are stored once as shared literals
+     * (see {@link SharedLiteral}) that are referenced (instead of copied)
+     * by the belief base of all agents. It should be set in the init of
+     * the environment, before adding percepts.
+     */
+    public void setSharedPercepts(boolean b) {
+        sharedPercepts = b;
+    }
+
+    public boolean isSharedPercepts() {
+        return sharedPercepts;
+    }
+
+    private void copyCommonPercepts(Collection<Literal> p) {
+        synchronized (percepts) {
+            // make a local copy of the environment percepts
+            // Note: a deep copy will be done by BB.add (except for shared percepts)
+            if (sharedVersions.isEmpty()) {
+                p.addAll(percepts);
+            } else {
+                for (Literal l: percepts)
+                    p.add(sharedVersion(l));
+            }
+        }
+    }
+
+    /** returns the version of the common percept l that is given to the agents */
+    private Literal sharedVersion(Literal l) {
+        Literal sl = sharedVersions.get(l);
+        return sl == null ? l : sl;
+    }
+
     /**
      *  Returns a copy of the perception for an agent.
      *
@@ -170,11 +287,7 @@ public class Environment {
         List<Literal> p = new ArrayList<Literal>(size);
 
         if (! percepts.isEmpty()) { // has global perception?
-            synchronized (percepts) {
-                // make a local copy of the environment percepts
-                // Note: a deep copy will be done by BB.add
-                p.addAll(percepts);
-            }
+            copyCommonPercepts(p);
         }
         if (agl != null) { // add agent personal perception
             synchronized (agl) {
@@ -189,18 +302,28 @@ public class Environment {
         if (perceptions != null) {
             for (Literal per: perceptions) {
                 if (! percepts.contains(per)) {
+                    if (sharedPercepts) {
+                        Literal sl = per.copy().forceFullLiteralImpl();
+                        sl.addAnnot(BeliefBase.TPercept);
+                        sharedVersions.put(per, new SharedLiteral(sl));
+                    }
                     percepts.add(per);
+                    commonPerceptChanged(per, true);
                 }
             }
-            uptodateAgs.clear();
+            perceptsChanged();
         }
     }
 
     /** Removes a perception from the common perception list */
     public boolean removePercept(Literal per) {
         if (per != null) {
-            uptodateAgs.clear();
-            return percepts.remove(per);
+            perceptsChanged();
+            if (percepts.remove(per)) {
+                commonPerceptChanged(per, false);
+                sharedVersions.remove(per);
+                return true;
+            }
         }
         return false;
     }
@@ -221,11 +344,13 @@ public class Environment {
                     Literal l = i.next();
                     if (new Unifier().unifies(l,per)) {
                         i.remove();
+                        commonPerceptChanged(l, false);
+                        sharedVersions.remove(l);
                         c++;
                     }
                 }
             }
-            if (c>0) uptodateAgs.clear();
+            if (c>0) perceptsChanged();
         }
         return c;
     }
@@ -234,8 +359,14 @@ public class Environment {
     /** Clears the list of global percepts */
     public void clearPercepts() {
         if (!percepts.isEmpty()) {
-            uptodateAgs.clear();
-            percepts.clear();
+            perceptsChanged();
+            synchronized (percepts) {
+                if (incrementalPerception)
+                    for (Literal l: percepts)
+                        commonPerceptChanged(l, false);
+                percepts.clear();
+                sharedVersions.clear();
+            }
         }
     }
 
@@ -257,8 +388,9 @@ public class Environment {
             }
             for (Literal p: per) {
                 if (! agl.contains(p)) {
-                    uptodateAgs.remove(agName);
+                    perceptsChanged(agName);
                     agl.add(p);
+                    agPerceptChanged(agName, p, true);
                 }
             }
         }
@@ -270,8 +402,11 @@ public class Environment {
         if (per != null && agName != null) {
             List<Literal> agl = agPercepts.get(agName);
             if (agl != null) {
-                uptodateAgs.remove(agName);
-                return agl.remove(per);
+                perceptsChanged(agName);
+                if (agl.remove(per)) {
+                    agPerceptChanged(agName, per, false);
+                    return true;
+                }
             }
         }
         return false;
@@ -291,11 +426,12 @@ public class Environment {
                         Literal l = i.next();
                         if (new Unifier().unifies(l,per)) {
                             i.remove();
+                            agPerceptChanged(agName, l, false);
                             c++;
                         }
                     }
                 }
-                if (c>0) uptodateAgs.remove(agName);
+                if (c>0) perceptsChanged(agName);
             }
         }
         return c;
@@ -317,8 +453,13 @@ public class Environment {
         if (agName != null) {
             List<Literal> agl = agPercepts.get(agName);
             if (agl != null) {
-                uptodateAgs.remove(agName);
-                agl.clear();
+                perceptsChanged(agName);
+                synchronized (agl) {
+                    if (incrementalPerception)
+                        for (Literal l: agl)
+                            agPerceptChanged(agName, l, false);
+                    agl.clear();
+                }
             }
         }
     }
@@ -330,6 +471,54 @@ public class Environment {
             clearPercepts(ag);
     }
 
+    /** registers the change of a common percept for the agents using incremental perception */
+    private void commonPerceptChanged(Literal l, boolean added) {
+        if (incrementalPerception) {
+            Literal sl = sharedVersion(l);
+            for (Map.Entry<String,ChangesRecord> e: agChanges.entrySet()) {
+                // the agent still perceives l by its own percepts
+                if (!added && containsPercept(e.getKey(), l))
+                    continue;
+                e.getValue().changed(sl, added);
+            }
+        }
+    }
+
+    /** registers the change of a percept of some agent for incremental perception */
+    private void agPerceptChanged(String agName, Literal l, boolean added) {
+        if (incrementalPerception) {
+            ChangesRecord c = agChanges.get(agName);
+            if (c != null && (added || !percepts.contains(l)))
+                c.changed(l, added);
+        }
+    }
+
+    /** percepts added/removed since the last perception of an agent */
+    private static class ChangesRecord {
+        private Set<Literal> added   = new LinkedHashSet<Literal>();
+        private Set<Literal> removed = new LinkedHashSet<Literal>();
+
+        synchronized void changed(Literal l, boolean isAdd) {
+            // an add cancels a previous remove and vice versa
+            if (isAdd) {
+                if (!removed.remove(l))
+                    added.add(l);
+            } else {
+                if (!added.remove(l))
+                    removed.add(l);
+            }
+        }
+
+        synchronized PerceptsChanges get() {
+            if (added.isEmpty() && removed.isEmpty())
+                return null;
+            PerceptsChanges r = new PerceptsChanges(new ArrayList<Literal>(added), new ArrayList<Literal>(removed));
+            added.clear();
+            removed.clear();
+            return r;
+        }
+    }
+
     /**
      * Called by the agent infrastructure to schedule an action to be
      * executed on the environment
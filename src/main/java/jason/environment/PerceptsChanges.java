@@ -0,0 +1,35 @@
+package jason.environment;
+
+import java.util.List;
+
+import jason.asSyntax.Literal;
+
+/**
+ * The changes in the perception of an agent since its last perception
+ * (see {@link Environment#getPerceptsChanges(String)}): the percepts added
+ * and the percepts removed. The lists may be modified by Jason.
+ */
+public class PerceptsChanges {
+
+    private final List<Literal> added;
+    private final List<Literal> removed;
+
+    public PerceptsChanges(List<Literal> added, List<Literal> removed) {
+        this.added   = added;
+        this.removed = removed;
+    }
+
+    /** the new percepts */
+    public List<Literal> getAdded() {
+        return added;
+    }
+
+    /** the percepts that are not perceived anymore */
+    public List<Literal> getRemoved() {
+        return removed;
+    }
+
+    public String toString() {
+        return "added: " + added + ", removed: " + removed;
+    }
+}
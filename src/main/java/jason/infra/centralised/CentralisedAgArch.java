@@ -18,6 +18,7 @@ import jason.asSemantics.Message;
 import jason.asSemantics.TransitionSystem;
 import jason.asSyntax.Atom;
 import jason.asSyntax.Literal;
+import jason.environment.PerceptsChanges;
 import jason.mas2j.ClassParameters;
 import jason.runtime.RuntimeServicesInfraTier;
 import jason.runtime.Settings;
@@ -236,19 +237,32 @@ public class CentralisedAgArch extends AgArch implements Runnable {
         logger.fine("I finished!");
     }
 
-    private Object sleepSync = new Object();
-    private int    sleepTime = 50;
+    private Object  sleepSync   = new Object();
+    private int     sleepTime   = 50;
+    private boolean wakeSignal  = false; // a wake arrived after the last sleep, the next sleep returns at once
 
     public static final int MAX_SLEEP = 1000;
 
+    /**
+     * waits for some wake signal (new messages, percepts, action feedback, ...).
+     * In the event_driven configuration, it waits only for the signals; otherwise
+     * it also wakes up periodically (from 50 up to MAX_SLEEP ms) to check the environment.
+     */
     public void sleep() {
         try {
             if (!getTS().getSettings().isSync()) {
                 //logger.fine("Entering in sleep mode....");
                 synchronized (sleepSync) {
-                    sleepSync.wait(sleepTime); // wait for messages
-                    if (sleepTime < MAX_SLEEP)
-                        sleepTime += 100;
+                    if (!wakeSignal) {
+                        if (conf == RConf.THREADED_EVENT_DRIVEN) {
+                            sleepSync.wait(); // wait for a wake signal
+                        } else {
+                            sleepSync.wait(sleepTime); // wait for messages
+                            if (sleepTime < MAX_SLEEP)
+                                sleepTime += 100;
+                        }
+                    }
+                    wakeSignal = false;
                 }
             }
         } catch (InterruptedException e) {
@@ -260,7 +274,8 @@ public class CentralisedAgArch extends AgArch implements Runnable {
     @Override
     public void wake() {
         synchronized (sleepSync) {
-            sleepTime = 50;
+            sleepTime  = 50;
+            wakeSignal = true;     // in case the agent is not sleeping yet (e.g. it is finishing a cycle)
             sleepSync.notifyAll(); // notify sleep method
         }
     }
@@ -290,6 +305,19 @@ public class CentralisedAgArch extends AgArch implements Runnable {
         return percepts;
     }
 
+    @Override
+    public boolean isIncrementalPerception() {
+        return infraEnv != null && infraEnv.getUserEnvironment().isIncrementalPerception();
+    }
+
+    @Override
+    public PerceptsChanges perceiveChanges() {
+        if (infraEnv == null) return null;
+        PerceptsChanges changes = infraEnv.getUserEnvironment().getPerceptsChanges(getAgName());
+        if (logger.isLoggable(Level.FINE) && changes != null) logger.fine("percepts " + changes);
+        return changes;
+    }
+
     // this is used by the .send internal action in stdlib
     public void sendMsg(Message m) throws ReceiverNotFoundException {
         // actually send the message
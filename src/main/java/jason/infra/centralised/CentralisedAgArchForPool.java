@@ -5,6 +5,7 @@ import java.util.concurrent.ExecutorService;
 /** an agent architecture for the infra based on thread pool */
 public final class CentralisedAgArchForPool extends CentralisedAgArch {
     private volatile boolean isSleeping  = false;
+    private volatile boolean wakeSignal  = false; // a wake arrived while the agent was running
     private ExecutorService executor;
 
     public void setExecutor(ExecutorService e) {
@@ -27,6 +28,8 @@ public final class CentralisedAgArchForPool extends CentralisedAgArch {
             if (isSleeping) {
                 isSleeping = false;
                 executor.execute(this);
+            } else {
+                wakeSignal = true; // the agent is running, it should not sleep after the current cycle
             }
         }
     }
@@ -37,9 +40,10 @@ public final class CentralisedAgArchForPool extends CentralisedAgArch {
         int i = 0;
 
         while (isRunning() && i++ < number_cycles) {
+            wakeSignal = false;
             reasoningCycle();
             synchronized (this) {
-                if (getTS().canSleep()) {
+                if (getTS().canSleep() && !wakeSignal) {
                     sleep();
                     return;
                 } else if (i == number_cycles) {
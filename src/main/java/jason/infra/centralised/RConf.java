@@ -2,6 +2,7 @@ package jason.infra.centralised;
 
 public enum RConf {
     THREADED("threaded"),
+    THREADED_EVENT_DRIVEN("event_driven"),
     POOL_SYNCH("pool"),
     POOL_SYNCH_SCHEDULED("synch_scheduled"),
     ASYNCH("asynch"),
@@ -489,6 +489,16 @@ public class RunCentralisedMAS extends BaseCentralisedMAS implements RunCentrali
         }
 
         if (generalConf != RConf.THREADED) logger.info("Created "+nbAg+" agents.");
+
+        // event driven agents do not poll the environment, so it has to inform them about changes in the perception
+        if (env != null) {
+            for (CentralisedAgArch ag: ags.values()) {
+                if (ag.getConf() == RConf.THREADED_EVENT_DRIVEN) {
+                    env.getUserEnvironment().setInformAgsOnPerceptChanges(true);
+                    break;
+                }
+            }
+        }
     }
 
 
@@ -16,6 +16,7 @@ public class Settings {
     public static final boolean   OSameFocus      = true;
     public static final boolean   ONewFocus       = false;
     public static final int       ODefaultNRC     = 1;
+    public static final int       ODefaultEPC     = 1;
     public static final int       ODefaultVerbose = -1;
     public static final boolean   ODefaultSync    = false;
 
@@ -24,6 +25,7 @@ public class Settings {
     private byte    events     = ODiscard;
     private boolean intBels    = OSameFocus;
     private int     nrcbp      = ODefaultNRC;
+    private int     epc        = ODefaultEPC; // number of events handled in each deliberation
     private int     verbose    = ODefaultVerbose;
     private boolean sync       = ODefaultSync;
     private boolean qCache     = false; // whether to use query cache
@@ -83,6 +85,10 @@ public class Settings {
                 String nrc = (String)options.get("nrcbp");
                 setNRCBP(nrc);
 
+            } else if (key.equals("eventsPerCycle")) {
+                String epc = (String)options.get("eventsPerCycle");
+                setEventsPerCycle(epc);
+
             } else if (key.equals("verbose")) {
                 String verbose = (String)options.get("verbose");
                 setVerbose(verbose);
@@ -126,6 +132,18 @@ public class Settings {
         nrcbp = opt;
     }
 
+    public void setEventsPerCycle(String opt) {
+        try {
+            setEventsPerCycle( Integer.parseInt(opt));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void setEventsPerCycle(int opt) {
+        epc = opt;
+    }
+
     public void setVerbose(String opt) {
         try {
             setVerbose( Integer.parseInt(opt));
@@ -161,6 +179,11 @@ public class Settings {
         return nrcbp;
     }
 
+    /** returns the maximum number of events handled in the deliberation of a reasoning cycle */
+    public int eventsPerCycle() {
+        return epc;
+    }
+
     public int verbose() {
         return verbose;
     }
@@ -6,7 +6,6 @@ import jason.asSemantics.InternalAction;
 import jason.asSemantics.TransitionSystem;
 import jason.asSemantics.Unifier;
 import jason.asSyntax.ListTerm;
-import jason.asSyntax.StringTerm;
 import jason.asSyntax.StringTermImpl;
 import jason.asSyntax.Term;
 
@@ -83,19 +82,11 @@ public class concat extends DefaultInternalAction {
             if (!args[args.length-1].isVar() && !args[args.length-1].isString()) {
                 throw JasonException.createWrongArgument(this,"Last argument '"+args[args.length-1]+"' is not a string nor a variable.");
             }
-            String vl = args[0].toString();
-            if (args[0].isString()) {
-                vl = ((StringTerm)args[0]).getString();
-            }
-            StringBuilder sr = new StringBuilder(vl);
-            for (int i=1; i<args.length-1; i++) {
-                vl = args[i].toString();
-                if (args[i].isString()) {
-                    vl = ((StringTerm)args[i]).getString();
-                }
-                sr.append(vl);
-            }
-            return un.unifies(new StringTermImpl(sr.toString()), args[args.length-1]);
+            // the result is a rope of the args, their chars are copied only if the result string is used
+            CharSequence[] parts = new CharSequence[args.length-1];
+            for (int i=0; i<args.length-1; i++)
+                parts[i] = StringTermImpl.toCharSequence(args[i]);
+            return un.unifies(StringTermImpl.concat(parts), args[args.length-1]);
             //} else {
             //    throw JasonException.createWrongArgument(this,"First argument '"+args[0]+"' must be a list, string or term.");
         }
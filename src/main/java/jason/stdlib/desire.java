@@ -136,7 +136,7 @@ public class desire extends intend {
 
                 case evt:
                     if (evtIterator == null)
-                        evtIterator = C.getEventsPlusAtomic();
+                        evtIterator = C.getEventsPlusAtomic(teFromL, un); // only events that may unify with teFromL
 
                     if (evtIterator.hasNext()) {
                         Event ei = evtIterator.next();
@@ -4,13 +4,14 @@ import jason.JasonException;
 import jason.asSemantics.DefaultInternalAction;
 import jason.asSemantics.TransitionSystem;
 import jason.asSemantics.Unifier;
-import jason.asSyntax.ListTerm;
-import jason.asSyntax.ListTermImpl;
+import jason.asSyntax.ArrayListTerm;
 import jason.asSyntax.Literal;
 import jason.asSyntax.LogicalFormula;
 import jason.asSyntax.Term;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
 
@@ -78,12 +79,11 @@ public class findall extends DefaultInternalAction {
 
         Term var = args[0];
         LogicalFormula logExpr = (LogicalFormula)args[1];
-        ListTerm all = new ListTermImpl();
-        ListTerm tail = all;
+        List<Term> all = new ArrayList<Term>();
         Iterator<Unifier> iu = logExpr.logicalConsequence(ts.getAg(), un);
         while (iu.hasNext()) {
-            tail = tail.append(var.capply(iu.next()));
+            all.add(var.capply(iu.next()));
         }
-        return un.unifies(args[2], all);
+        return un.unifies(args[2], new ArrayListTerm(all));
     }
 }
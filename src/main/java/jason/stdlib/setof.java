@@ -4,13 +4,15 @@ import jason.JasonException;
 import jason.asSemantics.DefaultInternalAction;
 import jason.asSemantics.TransitionSystem;
 import jason.asSemantics.Unifier;
+import jason.asSyntax.ArrayListTerm;
 import jason.asSyntax.ListTerm;
-import jason.asSyntax.ListTermImpl;
 import jason.asSyntax.Literal;
 import jason.asSyntax.LogicalFormula;
 import jason.asSyntax.Term;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -49,10 +51,9 @@ public class setof extends DefaultInternalAction {
 
     // copy the set to a new list
     private ListTerm setToList(Set<Term> set) {
-        ListTerm result = new ListTermImpl();
-        ListTerm tail = result;
+        List<Term> result = new ArrayList<Term>(set.size());
         for (Term t: set)
-            tail = tail.append(t.clone());
-        return result;
+            result.add(t.clone());
+        return new ArrayListTerm(result);
     }
 }
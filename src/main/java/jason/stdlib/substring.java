@@ -91,6 +91,8 @@ public class substring extends DefaultInternalAction {
             int end   = s0.length();
             if (args.length == 4 && args[3].isNumeric())
                 end = (int)((NumberTerm)(args[3])).solve();
+            if (args[0] instanceof StringTermImpl) // a view of the string, its chars are not copied
+                return un.unifies(args[1], ((StringTermImpl)args[0]).substring(start,end));
             return un.unifies(args[1], new StringTermImpl( s0.substring(start,end)));
         } else {
 
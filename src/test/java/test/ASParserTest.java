@@ -11,9 +11,11 @@ import java.io.StringReader;
 import java.util.Iterator;
 
 import jason.asSemantics.Agent;
+import jason.asSemantics.Message;
 import jason.asSemantics.Unifier;
 import jason.asSyntax.ASSyntax;
 import jason.asSyntax.ArithExpr;
+import jason.asSyntax.Atom;
 import jason.asSyntax.ListTerm;
 import jason.asSyntax.Literal;
 import jason.asSyntax.LogExpr;
@@ -24,12 +26,14 @@ import jason.asSyntax.PlanBody;
 import jason.asSyntax.PlanBody.BodyType;
 import jason.asSyntax.RelExpr;
 import jason.asSyntax.Structure;
+import jason.asSyntax.SymbolTable;
 import jason.asSyntax.Term;
 import jason.asSyntax.Trigger;
 import jason.asSyntax.UnnamedVar;
 import jason.asSyntax.parser.ParseException;
 import jason.asSyntax.parser.as2j;
 import jason.asSyntax.parser.as2jConstants;
+import jason.bb.BeliefBase;
 import jason.mas2j.MAS2JProject;
 import jason.mas2j.parser.mas2j;
 import junit.framework.TestCase;
@@ -402,4 +406,38 @@ public class ASParserTest extends TestCase {
         t = ASSyntax.parseFormula("(X>1) & (X<3) | (Y>5) & (X<7)");
         assertEquals("(((X > 1) & (X < 3)) | ((Y > 5) & (X < 7)))", t.toString());
     }
+
+    public void testSymbolTable() throws Exception {
+        Literal l1 = ASSyntax.parseLiteral("pos(X,a)[source(self)]");
+        Literal l2 = ASSyntax.parseLiteral("pos(Y,a)");
+        assertSame(l1.getFunctor(), l2.getFunctor());
+        assertSame(((Literal)l1.getTerm(1)).getFunctor(), ((Literal)l2.getTerm(1)).getFunctor());
+        assertSame(l1.getFunctor(), createLiteral(new String("pos"), createAtom("a")).getFunctor());
+        assertSame(createAtom("a").getFunctor(), createAtom(new String("a")).getFunctor());
+        assertNotSame(createAtom("a"), createAtom("a")); // atoms can be changed (e.g. setSrcInfo), they are not shared
+        assertSame(((Atom)BeliefBase.ASelf).getFunctor(), createAtom("self").getFunctor());
+
+        Message m = Message.parseMsg("<mid1,bob,tell,alice,vl(10)>");
+        assertSame(SymbolTable.intern("bob"), m.getSender());
+        assertSame(SymbolTable.intern("tell"), m.getIlForce());
+
+        // symbols interned concurrently are the same object
+        final String[][] r = new String[4][200];
+        Thread[] ts = new Thread[r.length];
+        for (int t=0; t<ts.length; t++) {
+            final int ti = t;
+            ts[t] = new Thread() {
+                public void run() {
+                    for (int i=0; i<r[ti].length; i++)
+                        r[ti][i] = SymbolTable.intern(new String("sym_"+i));
+                }
+            };
+            ts[t].start();
+        }
+        for (Thread t: ts)
+            t.join();
+        for (int i=0; i<r[0].length; i++)
+            for (int t=1; t<r.length; t++)
+                assertSame(r[0][i], r[t][i]);
+    }
 }
@@ -11,19 +11,30 @@ import jason.asSyntax.Literal;
 import jason.asSyntax.LiteralImpl;
 import jason.asSyntax.LogExpr;
 import jason.asSyntax.LogicalFormula;
+import jason.asSyntax.NumberTerm;
 import jason.asSyntax.Pred;
 import jason.asSyntax.PredicateIndicator;
+import jason.asSyntax.SharedLiteral;
 import jason.asSyntax.Structure;
 import jason.asSyntax.Term;
 import jason.asSyntax.VarTerm;
 import jason.asSyntax.parser.ParseException;
 import jason.bb.BeliefBase;
+import jason.bb.ColumnarBB;
+import jason.bb.ConcurrentBeliefBase;
 import jason.bb.DefaultBeliefBase;
+import jason.bb.IndexedBB;
 import jason.bb.JDBCPersistentBB;
+import jason.environment.Environment;
+import jason.environment.PerceptsChanges;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import junit.framework.TestCase;
 
@@ -627,8 +638,42 @@ public class BeliefBaseTest extends TestCase {
         ag.getBB().add(1,Literal.parseLiteral("c(x)"));
         ag.getBB().add(1,Literal.parseLiteral("c(y)"));
         ag.getBB().add(Literal.parseLiteral("c(20)"));
+        ag.getBB().add(Literal.parseLiteral("p(1)[source(percept)]"));
         BeliefBase c = (BeliefBase)ag.getBB().clone();
         assertEquals(ag.getBB().size(), c.size());
+        assertEquals(bbAsString(ag.getBB()), bbAsString(c));
+
+        // changes in one BB do not affect the other (entries are shared until changed)
+        String before = bbAsString(c);
+        assertTrue(ag.getBB().add(Literal.parseLiteral("a(20)[b]")));
+        assertTrue(ag.getBB().remove(Literal.parseLiteral("a(30)[a]")));
+        assertTrue(ag.getBB().remove(Literal.parseLiteral("c(x)")));
+        assertTrue(ag.getBB().add(Literal.parseLiteral("c(z)")));
+        ag.getBB().abolish(new PredicateIndicator("p", 1));
+        assertEquals(before, bbAsString(c));
+        assertEquals("a(10)a(20)[a,b]c(z)c(20)c(y)", bbAsString(ag.getBB()));
+        assertEquals(1, iteratorSize(c.getPercepts()));
+
+        assertTrue(c.remove(Literal.parseLiteral("c(20)")));
+        Iterator<Literal> i = c.iterator();
+        while (i.hasNext())
+            if (i.next().getFunctor().equals("a"))
+                i.remove();
+        assertEquals("c(x)c(y)p(1)[source(percept)]", bbAsString(c));
+        assertEquals("a(10)a(20)[a,b]c(z)c(20)c(y)", bbAsString(ag.getBB()));
+    }
+
+    /** the beliefs of the BB in the order of their PI */
+    private String bbAsString(BeliefBase bb) {
+        List<Literal> all = new ArrayList<Literal>();
+        for (Literal l: bb)
+            all.add(l);
+        Collections.sort(all, new Comparator<Literal>() {
+            public int compare(Literal a, Literal b) {
+                return a.getPredicateIndicator().compareTo(b.getPredicateIndicator());
+            }
+        });
+        return concat(all.iterator());
     }
 
     public void testBUF() {
@@ -655,6 +700,436 @@ public class BeliefBaseTest extends TestCase {
         assertEquals(1,ag.getBB().size());
     }
 
+    public void testIncrementalBUF() {
+        Agent ag = new Agent();
+        ag.initAg();
+        Environment env = new Environment();
+        env.setIncrementalPerception(true);
+
+        ag.getBB().add(Literal.parseLiteral("a(10)[source(bob)]"));
+        env.addPercept(Literal.parseLiteral("a(10)"), Literal.parseLiteral("a(20)"));
+        env.addPercept("ag", Literal.parseLiteral("b(1)"));
+
+        PerceptsChanges ch = env.getPerceptsChanges("ag"); // first call: all percepts
+        assertEquals(3, ch.getAdded().size());
+        assertEquals(3, ag.buf(ch.getAdded(), ch.getRemoved()));
+        assertEquals(3, ag.getBB().size());
+        assertNull(env.getPerceptsChanges("ag"));
+
+        env.addPercept(Literal.parseLiteral("a(30)"));
+        env.removePercept(Literal.parseLiteral("a(30)")); // cancels the add
+        env.removePercept(Literal.parseLiteral("a(10)"));
+        env.removePercept(Literal.parseLiteral("a(20)"));
+        env.addPercept(Literal.parseLiteral("a(20)"));    // cancels the remove
+        ch = env.getPerceptsChanges("ag");
+        assertEquals("[]", ch.getAdded().toString());
+        assertEquals("[a(10)]", ch.getRemoved().toString());
+        assertEquals(1, ag.buf(ch.getAdded(), ch.getRemoved()));
+        assertEquals(3, ag.getBB().size());
+        assertEquals("[source(bob)]", ag.getBB().contains(Literal.parseLiteral("a(10)")).getAnnots().toString());
+
+        env.clearAllPercepts();
+        ch = env.getPerceptsChanges("ag");
+        assertEquals(2, ag.buf(ch.getAdded(), ch.getRemoved()));
+        assertEquals(1, ag.getBB().size());
+        env.stop();
+    }
+
+    public void testSharedPercepts() {
+        Environment env = new Environment();
+        env.setSharedPercepts(true);
+        env.addPercept(Literal.parseLiteral("a(10)"), Literal.parseLiteral("a(20)"));
+        assertTrue(env.containsPercept(Literal.parseLiteral("a(10)")));
+
+        Agent ag1 = new Agent();
+        ag1.initAg();
+        Agent ag2 = new Agent();
+        ag2.initAg();
+        assertEquals(2, ag1.buf(env.getPercepts("ag1")));
+        assertEquals(2, ag2.buf(env.getPercepts("ag2")));
+
+        // both agents refer to the same percept
+        Literal a10 = ag1.getBB().contains(Literal.parseLiteral("a(10)"));
+        assertTrue(a10 instanceof SharedLiteral);
+        assertSame(a10, ag2.getBB().contains(Literal.parseLiteral("a(10)")));
+        try {
+            a10.addAnnot(BeliefBase.TSelf);
+            fail("shared literals can not be changed");
+        } catch (UnsupportedOperationException e) {}
+        try {
+            a10.getAnnots().add(BeliefBase.TSelf);
+            fail("the annots of shared literals can not be changed");
+        } catch (UnsupportedOperationException e) {}
+        try {
+            a10.getTerms().set(0, ASSyntax.createNumber(30));
+            fail("the terms of shared literals can not be changed");
+        } catch (UnsupportedOperationException e) {}
+
+        // adding it in a BB where it already is does not change it
+        Agent ag3 = new Agent();
+        ag3.initAg();
+        assertTrue(ag3.getBB().add(Literal.parseLiteral("a(10)[source(percept)]")));
+        assertFalse(ag3.getBB().add(a10));
+        assertTrue(ag3.getBB().add(Literal.parseLiteral("a(20)[source(self)]")));
+        assertTrue(ag3.getBB().add(ag2.getBB().contains(Literal.parseLiteral("a(20)"))));
+        assertEquals("a(10)[source(percept)]", a10.toString());
+        assertEquals("a(20)[source(percept)]", ag2.getBB().contains(Literal.parseLiteral("a(20)")).toString());
+
+        // ag1 has its own copy when annots change
+        assertTrue(ag1.getBB().add(Literal.parseLiteral("a(10)[source(self)]")));
+        assertEquals("a(10)[source(percept),source(self)]", ag1.getBB().contains(Literal.parseLiteral("a(10)")).toString());
+        assertEquals("a(10)[source(percept)]", a10.toString());
+
+        env.removePercept(Literal.parseLiteral("a(10)"));
+        assertEquals(1, ag1.buf(env.getPercepts("ag1")));
+        assertEquals(1, ag2.buf(env.getPercepts("ag2")));
+        assertEquals("a(10)[source(self)]", ag1.getBB().contains(Literal.parseLiteral("a(10)")).toString());
+        assertNull(ag2.getBB().contains(Literal.parseLiteral("a(10)")));
+        assertEquals("a(10)[source(percept)]", a10.toString());
+        assertEquals(2, ag1.getBB().size());
+        assertEquals(1, ag2.getBB().size());
+        env.stop();
+    }
+
+    public void testColumnarBB() throws Exception {
+        BeliefBase bb = new ColumnarBB();
+        bb.init(null, new String[] { "cell(int,int,atom)", "temp(atom,double)" });
+
+        for (int x=0; x<100; x++)
+            for (int y=0; y<100; y++)
+                assertTrue(bb.add(ASSyntax.parseLiteral("cell("+x+","+y+","+(x == y ? "obstacle" : "free")+")[source(percept)]")));
+        assertFalse(bb.add(ASSyntax.parseLiteral("cell(3,3,obstacle)[source(percept)]")));
+        assertTrue(bb.add(ASSyntax.parseLiteral("temp(room1,20.5)[source(self)]")));
+        assertTrue(bb.add(ASSyntax.parseLiteral("temp(room2,\"hot\")"))); // does not fit in the columns
+        assertEquals(10002, bb.size());
+
+        assertEquals("cell(3,3,obstacle)[source(percept)]", bb.contains(ASSyntax.parseLiteral("cell(3,3,obstacle)")).toString());
+        assertEquals("temp(room1,20.5)[source(self)]", bb.contains(ASSyntax.parseLiteral("temp(room1,20.5)")).toString());
+        assertNull(bb.contains(ASSyntax.parseLiteral("cell(3,3,free)")));
+        assertNull(bb.contains(ASSyntax.parseLiteral("cell(3,3,unknown_atom)")));
+
+        // candidates selected by the bound arguments
+        Unifier u = new Unifier();
+        u.unifies(new VarTerm("X"), ASSyntax.createNumber(7));
+        assertEquals(100, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(X,_,_)"), u)));
+        assertEquals(1, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(X,Y,obstacle)"), u)));
+        assertEquals(1, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(X,7,obstacle)"), u)));
+        assertEquals(0, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(X,8,obstacle)"), u)));
+        assertEquals(10000, iteratorSize(bb.getCandidateBeliefs(new PredicateIndicator("cell", 3))));
+        assertEquals(10000, iteratorSize(bb.getPercepts()));
+
+        // more annots: the belief is moved to the next BB
+        assertTrue(bb.add(ASSyntax.parseLiteral("cell(1,1,obstacle)[source(bob)]")));
+        assertEquals(10002, bb.size());
+        assertEquals("cell(1,1,obstacle)[source(bob),source(percept)]", bb.contains(ASSyntax.parseLiteral("cell(1,1,obstacle)")).toString());
+
+        // removes all percepts with x > 10
+        Iterator<Literal> i = bb.getPercepts();
+        while (i.hasNext())
+            if (((NumberTerm)i.next().getTerm(0)).solve() > 10)
+                i.remove();
+        assertEquals(10000 - 89*100 + 2, bb.size());
+        assertFalse(bb.remove(ASSyntax.parseLiteral("cell(20,20,obstacle)[source(percept)]")));
+        assertTrue(bb.remove(ASSyntax.parseLiteral("cell(2,2,obstacle)[source(percept)]")));
+        assertNull(bb.contains(ASSyntax.parseLiteral("cell(2,2,obstacle)")));
+        assertNotNull(bb.contains(ASSyntax.parseLiteral("cell(3,3,obstacle)")));
+        for (int x=0; x<11; x++)
+            for (int y=0; y<100; y++)
+                if (x != 2 || y != 2)
+                    assertNotNull(bb.contains(ASSyntax.parseLiteral("cell("+x+","+y+","+(x == y ? "obstacle" : "free")+")")));
+
+        // the index of the columns skips removed rows and is rebuilt when rows are moved
+        // (the candidates include cell(1,1,obstacle), stored in the next BB)
+        assertEquals(12, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(_,5,_)"), u)));
+        for (int y=0; y<100; y++)
+            assertTrue(bb.add(ASSyntax.parseLiteral("cell(50,"+y+",free)[source(percept)]")));
+        assertEquals(13, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(_,5,_)"), u)));
+        assertEquals(101, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(50,_,free)"), u)));
+        assertEquals(2, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(_,5,obstacle)"), u)));
+
+        BeliefBase c = bb.clone();
+        assertTrue(bb.abolish(new PredicateIndicator("cell", 3)));
+        assertEquals(2, bb.size());
+        assertEquals(10000 - 89*100 + 101, c.size());
+        assertEquals(13, iteratorSize(c.getCandidateBeliefs(ASSyntax.parseLiteral("cell(_,5,_)"), u)));
+
+        // facts in columns are kept in the order of the default BB
+        bb = new ColumnarBB();
+        bb.init(null, new String[] { "temp(atom,double)" });
+        BeliefBase def = new DefaultBeliefBase();
+        for (BeliefBase b: new BeliefBase[] { bb, def }) {
+            b.add(ASSyntax.parseLiteral("temp(r1,1)[source(percept)]"));
+            b.add(1, ASSyntax.parseLiteral("temp(r2,2)[source(percept)]"));
+            b.add(ASSyntax.parseLiteral("temp(r3,3)[source(percept)]"));
+            b.add(1, ASSyntax.parseLiteral("temp(r4,4)[source(percept)]"));
+            b.add(ASSyntax.parseLiteral("temp(r1,5)[source(percept)]"));
+        }
+        Iterator<Literal> id = def.getCandidateBeliefs(new PredicateIndicator("temp", 2));
+        Iterator<Literal> ic = bb.getCandidateBeliefs(new PredicateIndicator("temp", 2));
+        while (id.hasNext())
+            assertEquals(id.next().toString(), ic.next().toString());
+        assertFalse(ic.hasNext());
+        assertEquals("temp(r1,5)[source(percept)]", bb.getCandidateBeliefs(ASSyntax.parseLiteral("temp(r1,_)"), u).next().toString());
+
+        // queries with a var namespace or a var literal also consider the facts in columns
+        assertEquals(1, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("NS::temp(r3,_)"), u)));
+        Unifier un = new Unifier();
+        un.unifies(new VarTerm("NS"), ASSyntax.parseTerm("default"));
+        assertEquals(1, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("NS::temp(r3,_)"), un)));
+        un = new Unifier();
+        un.unifies(new VarTerm("NS"), new Atom("other"));
+        Iterator<Literal> io = bb.getCandidateBeliefs(ASSyntax.parseLiteral("NS::temp(r3,_)"), un);
+        assertTrue(io == null || !io.hasNext());
+        assertEquals(5, iteratorSize(bb.getCandidateBeliefs(new VarTerm("X"), u)));
+    }
+
+    public void testColumnarBBChangesWhileIterating() throws Exception {
+        BeliefBase bb = new ColumnarBB();
+        bb.init(null, new String[] { "cell(int,int,atom)" });
+        for (int x=0; x<1000; x++)
+            bb.add(ASSyntax.parseLiteral("cell("+x+",0,free)[source(percept)]"));
+
+        // the rows are compacted while the facts are changed
+        Unifier u = new Unifier();
+        Set<String> seen = new HashSet<String>();
+        Iterator<Literal> i = bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(X,Y,free)"), u);
+        while (i.hasNext()) {
+            Literal l = i.next();
+            assertTrue(seen.add(l.toString()));
+            assertTrue(bb.remove(l));
+            assertTrue(bb.add(ASSyntax.parseLiteral("cell("+l.getTerm(0)+",0,busy)[source(percept)]")));
+        }
+        assertEquals(1000, seen.size());
+        assertEquals(1000, bb.size());
+        assertEquals(0, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(X,Y,free)"), u)));
+
+        // the same for all facts of the predicate, removing them by the iterator
+        seen.clear();
+        i = bb.getCandidateBeliefs(new PredicateIndicator("cell", 3));
+        while (i.hasNext()) {
+            Literal l = i.next();
+            assertTrue(seen.add(l.toString()));
+            if (l.getTerm(1).toString().equals("0")) {
+                i.remove();
+                assertTrue(bb.add(1, ASSyntax.parseLiteral("cell("+l.getTerm(0)+",1,busy)[source(percept)]")));
+            }
+        }
+        assertEquals(2000, seen.size()); // the facts added in the end are also iterated
+        assertEquals(1000, bb.size());
+        assertEquals(1000, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(_,1,busy)"), u)));
+
+        i = bb.getCandidateBeliefs(new PredicateIndicator("cell", 3));
+        i.next();
+        bb.clear();
+        assertFalse(i.hasNext());
+    }
+
+    public void testIndexedBB() throws ParseException {
+        BeliefBase bb = new IndexedBB();
+        bb.init(null, new String[] { "student(key,_)", "depot(_,_,_)" });
+
+        assertTrue(bb.add(ASSyntax.parseLiteral("student(1,bob)")));
+        assertTrue(bb.add(ASSyntax.parseLiteral("student(2,alice)")));
+        assertTrue(bb.add(ASSyntax.parseLiteral("student(1,tom)"))); // replaces bob
+        assertTrue(bb.add(ASSyntax.parseLiteral("depot(1,2,3)")));
+        assertTrue(bb.add(ASSyntax.parseLiteral("depot(4,5,6)")));   // replaces depot(1,2,3)
+        assertTrue(bb.add(ASSyntax.parseLiteral("ns::student(1,bob)"))); // other namespace
+        assertEquals(4, bb.size());
+
+        assertNull(bb.contains(ASSyntax.parseLiteral("student(1,bob)")));
+        assertNotNull(bb.contains(ASSyntax.parseLiteral("student(1,tom)")));
+        assertNull(bb.contains(ASSyntax.parseLiteral("student(3,tom)")));
+        assertNotNull(bb.contains(ASSyntax.parseLiteral("ns::student(1,bob)")));
+
+        Unifier u = new Unifier();
+        u.unifies(new VarTerm("K"), ASSyntax.createNumber(2));
+        Iterator<Literal> i = bb.getCandidateBeliefs(ASSyntax.parseLiteral("student(K,N)"), u);
+        assertEquals("student(2,alice)", i.next().toString());
+        assertFalse(i.hasNext());
+        assertEquals(0, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("student(3,N)"), u)));
+        assertEquals(2, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("student(_,N)"), u)));
+
+        assertTrue(bb.remove(ASSyntax.parseLiteral("student(2,alice)")));
+        assertEquals(0, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("student(K,N)"), u)));
+        assertTrue(bb.add(ASSyntax.parseLiteral("student(2,ana)")));
+        assertEquals(4, bb.size());
+
+        // rules are not indexed, they are also candidates for queries with bound keys
+        Literal r = ASSyntax.parseRule("student(K,N) :- enrolled(K,N).");
+        assertTrue(bb.add(r));
+        for (String q: new String[] { "student(1,N)", "student(K,N)" }) {
+            boolean hasRule = false;
+            i = bb.getCandidateBeliefs(ASSyntax.parseLiteral(q), u);
+            while (i.hasNext())
+                if (i.next().isRule())
+                    hasRule = true;
+            assertTrue(hasRule);
+        }
+        assertTrue(bb.remove(r));
+        assertEquals(1, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("student(1,N)"), u)));
+    }
+
+    public void testPerceptsByPI() throws ParseException {
+        DefaultBeliefBase bb = new DefaultBeliefBase();
+        for (int i=0; i<10; i++) {
+            bb.add(ASSyntax.parseLiteral("pos("+i+")[source(percept)]"));
+            bb.add(ASSyntax.parseLiteral("ns::pos("+i+")[source(percept)]"));
+            bb.add(ASSyntax.parseLiteral("temp("+i+")[source(percept)]"));
+        }
+        bb.add(ASSyntax.parseLiteral("temp(20)[source(self)]"));
+        assertEquals(30, iteratorSize(bb.getPercepts()));
+        assertEquals(10, iteratorSize(bb.getPercepts(new PredicateIndicator("pos", 1))));
+        assertEquals(0, iteratorSize(bb.getPercepts(new PredicateIndicator("other", 1))));
+
+        // removes the percepts temp(X) with X > 4
+        Iterator<Literal> i = bb.getPercepts(new PredicateIndicator("temp", 1));
+        while (i.hasNext())
+            if (i.next().getTerm(0).toString().compareTo("4") > 0)
+                i.remove();
+        assertEquals(25, iteratorSize(bb.getPercepts()));
+        assertEquals(26, bb.size());
+        assertNull(bb.contains(ASSyntax.parseLiteral("temp(7)")));
+
+        assertTrue(bb.abolish(new PredicateIndicator("pos", 1)));
+        assertEquals(15, iteratorSize(bb.getPercepts()));
+        assertEquals(0, iteratorSize(bb.getPercepts(new PredicateIndicator("pos", 1))));
+        assertEquals(10, iteratorSize(bb.getPercepts(ASSyntax.parseLiteral("ns::pos(0)").getPredicateIndicator())));
+        assertEquals(16, bb.size());
+    }
+
+    public void testRemoveAndOrder() throws ParseException {
+        BeliefBase bb = new DefaultBeliefBase();
+        for (int i=0; i<5; i++) {
+            bb.add(1, ASSyntax.parseLiteral("b(e"+i+")"));  // in the end
+            bb.add(0, ASSyntax.parseLiteral("b(f"+i+")")); // in the begin
+        }
+        assertEquals("b(f4)b(f3)b(f2)b(f1)b(f0)b(e0)b(e1)b(e2)b(e3)b(e4)", concat(bb.iterator()));
+
+        // removes some beliefs while iterating
+        Iterator<Literal> i = bb.getCandidateBeliefs(ASSyntax.parseLiteral("b(_)"), null);
+        assertEquals("b(f4)", i.next().toString());
+        assertTrue(bb.remove(ASSyntax.parseLiteral("b(f3)")));
+        assertTrue(bb.remove(ASSyntax.parseLiteral("b(e2)")));
+        assertEquals("b(f2)b(f1)b(f0)b(e0)b(e1)b(e3)b(e4)", concat(i));
+
+        assertTrue(bb.remove(ASSyntax.parseLiteral("b(f4)")));
+        assertTrue(bb.remove(ASSyntax.parseLiteral("b(e4)")));
+        assertFalse(bb.remove(ASSyntax.parseLiteral("b(e4)")));
+        bb.add(0, ASSyntax.parseLiteral("b(a)"));
+        bb.add(1, ASSyntax.parseLiteral("b(z)"));
+        assertEquals("b(a)b(f2)b(f1)b(f0)b(e0)b(e1)b(e3)b(z)", concat(bb.iterator()));
+        assertEquals(8, bb.size());
+    }
+
+    public void testConcurrentBB() throws Exception {
+        final BeliefBase bb = new ConcurrentBeliefBase();
+        bb.add(ASSyntax.parseLiteral("b(1)[source(bob)]"));
+        bb.add(ASSyntax.parseLiteral("b(2)[source(percept)]"));
+        assertTrue(bb.add(ASSyntax.parseLiteral("b(1)[source(alice)]")));
+        assertFalse(bb.add(ASSyntax.parseLiteral("b(1)[source(alice)]")));
+        assertEquals(2, bb.size());
+        assertEquals("b(1)[source(alice),source(bob)]", bb.contains(ASSyntax.parseLiteral("b(1)")).toString());
+        assertEquals(1, iteratorSize(bb.getPercepts()));
+
+        // queries are weakly consistent and do not see changes in the beliefs already returned
+        Literal b1 = bb.contains(ASSyntax.parseLiteral("b(1)"));
+        Iterator<Literal> i = bb.getCandidateBeliefs(ASSyntax.parseLiteral("b(_)"), null);
+        assertEquals("b(2)[source(percept)]", i.next().toString());
+        assertTrue(bb.remove(ASSyntax.parseLiteral("b(1)[source(bob)]")));
+        assertTrue(bb.remove(ASSyntax.parseLiteral("b(2)[source(percept)]")));
+        bb.add(ASSyntax.parseLiteral("b(3)"));
+        assertEquals("b(1)[source(alice)]", concat(i)); // the current version of b(1), b(3) is before the iterator
+        assertEquals("b(1)[source(alice),source(bob)]", b1.toString()); // the belief was not changed
+        assertEquals("b(3)b(1)[source(alice)]", concat(bb.iterator()));
+        assertEquals(0, iteratorSize(bb.getPercepts()));
+        assertEquals(2, bb.size());
+
+        // readers and writers at the same time
+        Thread writer = new Thread() {
+            public void run() {
+                for (int k=0; k<2000; k++) {
+                    bb.add(ASSyntax.createLiteral("c", ASSyntax.createNumber(k % 50)).addAnnots(BeliefBase.TPercept));
+                    bb.remove(ASSyntax.createLiteral("c", ASSyntax.createNumber((k+25) % 50)).addAnnots(BeliefBase.TPercept));
+                }
+            }
+        };
+        writer.start();
+        Literal q = ASSyntax.parseLiteral("c(X)");
+        while (writer.isAlive()) {
+            Iterator<Literal> ic = bb.getCandidateBeliefs(q, null);
+            if (ic != null)
+                assertTrue(iteratorSize(ic) <= 50);
+        }
+        writer.join();
+        assertEquals(iteratorSize(bb.iterator()), bb.size());
+        assertEquals(iteratorSize(bb.getPercepts()), bb.size()-2);
+    }
+
+    private String concat(Iterator<Literal> i) {
+        StringBuilder s = new StringBuilder();
+        while (i.hasNext())
+            s.append(i.next());
+        return s.toString();
+    }
+
+    public void testArgIndex() throws ParseException {
+        DefaultBeliefBase bb = new DefaultBeliefBase();
+        bb.setIndexedArgs(new PredicateIndicator("cell",2), 0, 1);
+        for (int i=0; i<100; i++) {
+            bb.add(1, ASSyntax.parseLiteral("pos(ag"+(i % 50)+","+i+","+(i*2)+")"));
+            bb.add(1, ASSyntax.parseLiteral("cell("+(i % 10)+","+(i / 10)+")"));
+        }
+        assertEquals(2, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("pos(ag42,X,Y)"), null)));
+        assertEquals(0, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("pos(bob,X,Y)"), null)));
+        assertEquals(100, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("pos(A,X,Y)"), null)));
+
+        // the order of beliefs is kept
+        Iterator<Literal> i = bb.getCandidateBeliefs(ASSyntax.parseLiteral("pos(ag42,X,Y)"), null);
+        assertEquals("pos(ag42,42,84)", i.next().toString());
+        assertEquals("pos(ag42,92,184)", i.next().toString());
+
+        // value of the var from the unifier
+        Unifier u = new Unifier();
+        u.unifies(new VarTerm("A"), new Atom("ag7"));
+        assertEquals(2, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("pos(A,X,Y)"), u)));
+
+        // the most selective index is used
+        assertEquals(10, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(3,Y)"), null)));
+        assertEquals(10, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(X,3)"), null)));
+        assertEquals(10, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(3,3)"), null)));
+
+        // removal updates the index
+        assertTrue(bb.remove(ASSyntax.parseLiteral("pos(ag42,42,84)")));
+        assertEquals(1, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("pos(ag42,X,Y)"), null)));
+        Iterator<Literal> ib = bb.iterator();
+        while (ib.hasNext())
+            if (ib.next().toString().equals("pos(ag42,92,184)"))
+                ib.remove();
+        assertEquals(0, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("pos(ag42,X,Y)"), null)));
+
+        // removal by the iterator of an index removes the belief from the BB (entry, other indexes, and size)
+        int size = bb.size();
+        Iterator<Literal> ic = bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(3,Y)"), null);
+        while (ic.hasNext())
+            if (ic.next().toString().equals("cell(3,4)"))
+                ic.remove();
+        assertEquals(size-1, bb.size());
+        assertNull(bb.contains(ASSyntax.parseLiteral("cell(3,4)")));
+        assertEquals(9, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(X,4)"), null)));
+        assertEquals(99, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("cell(X,Y)"), null)));
+
+        // beliefs with vars as argument disable the index
+        bb.add(1, ASSyntax.parseLiteral("pos(_,0,0)"));
+        assertEquals(99, iteratorSize(bb.getCandidateBeliefs(ASSyntax.parseLiteral("pos(ag42,X,Y)"), null)));
+
+        // queries still give the same answers
+        Agent ag = new Agent();
+        ag.initAg();
+        ag.setBB(bb);
+        Iterator<Unifier> iu = ASSyntax.parseLiteral("pos(ag7,X,Y)").logicalConsequence(ag, new Unifier());
+        assertEquals(3, iteratorSize(iu));
+    }
+
     private int iteratorSize(@SuppressWarnings("rawtypes") Iterator i) {
         int c = 0;
         while (i.hasNext()) {
@@ -0,0 +1,86 @@
+package test;
+
+import jason.asSemantics.Agent;
+import jason.asSemantics.TransitionSystem;
+import jason.asSyntax.Literal;
+import jason.asSyntax.Structure;
+import jason.environment.Environment;
+import jason.environment.EnvironmentInfraTier;
+import jason.infra.centralised.CentralisedAgArch;
+import jason.infra.centralised.RConf;
+import jason.runtime.RuntimeServicesInfraTier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/** JUnit test case for the environment and the notification of its changes to the agents */
+public class EnvironmentTest extends TestCase {
+
+    public void testInformAgsOnPerceptChanges() {
+        final List<String> informed = new ArrayList<String>();
+        Environment env = new Environment();
+        env.setEnvironmentInfraTier(new EnvironmentInfraTier() {
+            public void informAgsEnvironmentChanged(String... agents) {
+                informed.addAll(Arrays.asList(agents));
+            }
+            public void informAgsEnvironmentChanged(Collection<String> agents) {
+                informed.addAll(agents);
+            }
+            public RuntimeServicesInfraTier getRuntimeServices() { return null; }
+            public boolean isRunning() { return true; }
+            public void actionExecuted(String agName, Structure actTerm, boolean success, Object infraData) {}
+        });
+        env.setInformAgsOnPerceptChanges(true);
+
+        env.addPercept(Literal.parseLiteral("a(10)"));
+        assertTrue(informed.isEmpty()); // no agent has perceived yet
+        env.getPercepts("bob");
+        env.getPercepts("alice");
+        env.addPercept(Literal.parseLiteral("a(20)"));
+        env.addPercept(Literal.parseLiteral("a(30)"));
+        Collections.sort(informed);
+        assertEquals("[alice, bob]", informed.toString()); // only once, until the next perception
+
+        informed.clear();
+        env.getPercepts("bob");
+        env.addPercept("alice", Literal.parseLiteral("b"));
+        env.addPercept("bob", Literal.parseLiteral("b"));
+        env.removePercept("bob", Literal.parseLiteral("b"));
+        assertEquals("[bob]", informed.toString());
+        env.stop();
+    }
+
+    /** a wake (e.g. caused by a percept change) that arrives before the agent sleeps is not lost */
+    public void testWakeBeforeSleep() throws Exception {
+        final CentralisedAgArch arch = new CentralisedAgArch();
+        arch.setConf(RConf.THREADED_EVENT_DRIVEN);
+        Agent ag = new Agent();
+        new TransitionSystem(ag, null, null, arch);
+        ag.initAg();
+
+        Runnable sleep = new Runnable() {
+            public void run() {
+                arch.sleep();
+            }
+        };
+        arch.wake(); // the agent is still running its cycle
+        Thread sleeper = new Thread(sleep);
+        sleeper.start();
+        sleeper.join(2000);
+        assertFalse(sleeper.isAlive()); // sleep has returned at once
+
+        // the wake was consumed: the next sleep waits for another wake
+        sleeper = new Thread(sleep);
+        sleeper.start();
+        sleeper.join(200);
+        assertTrue(sleeper.isAlive());
+        arch.wake();
+        sleeper.join(2000);
+        assertFalse(sleeper.isAlive());
+    }
+}
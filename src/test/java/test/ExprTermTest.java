@@ -1,6 +1,7 @@
 package test;
 
 import jason.JasonException;
+import jason.NoValueException;
 import jason.asSemantics.Agent;
 import jason.asSemantics.Unifier;
 import jason.asSyntax.ASSyntax;
@@ -55,6 +56,52 @@ public class ExprTermTest extends TestCase {
         assertTrue(nb.solve() == 13.2);
     }
 
+    public void testSolveWithUnifier() throws Exception {
+        Unifier u = new Unifier();
+        u.unifies(new VarTerm("X"), ASSyntax.createNumber(10));
+        u.unifies(new VarTerm("Y"), new VarTerm("Z"));
+        u.unifies(new VarTerm("Z"), ASSyntax.createNumber(2.5));
+        ArithExpr e = (ArithExpr)ArithExpr.parseExpr("X * Y - -1");
+        assertEquals(26.0, e.solve(u));
+        assertEquals("26", e.capply(u).toString());
+        assertSame(e.capply(u), e.capply(u)); // small ints are cached
+        assertSame(ASSyntax.createNumber(3), ASSyntax.createNumber(3));
+        assertNotSame(ASSyntax.createNumber(3.5), ASSyntax.createNumber(3.5));
+        assertEquals("(X+W)", ArithExpr.parseExpr("X+W").capply(new Unifier()).toString()); // can not be solved
+
+        Agent ag = new Agent();
+        ag.initAg();
+        assertTrue(((RelExpr)RelExpr.parseExpr("X > Y + 1")).logicalConsequence(ag, u).hasNext());
+        assertFalse(((RelExpr)RelExpr.parseExpr("X < Y + 1")).logicalConsequence(ag, u).hasNext());
+        assertTrue(((RelExpr)RelExpr.parseExpr("X == 5*2")).logicalConsequence(ag, u).hasNext());
+        assertTrue(((RelExpr)RelExpr.parseExpr("X >= 10")).logicalConsequence(ag, u).hasNext());
+        assertFalse(((RelExpr)RelExpr.parseExpr("X \\== 10")).logicalConsequence(ag, u).hasNext());
+        u.unifies(new VarTerm("S"), ASSyntax.createString("a"));
+        assertTrue(((RelExpr)RelExpr.parseExpr("S > 1")).logicalConsequence(ag, u).hasNext()); // strings are greater than numbers
+    }
+
+    public void testCompiledExpr() throws Exception {
+        ArithExpr e = (ArithExpr)ArithExpr.parseExpr("math.max(X, 2*3) + -(4 div 2)");
+        Unifier u = new Unifier();
+        u.unifies(new VarTerm("X"), ASSyntax.createNumber(10));
+        assertEquals(8.0, e.solve(u));
+        u = new Unifier();
+        u.unifies(new VarTerm("X"), ASSyntax.createNumber(1));
+        assertEquals(4.0, e.solve(u));
+        assertEquals(4.0, ((ArithExpr)e.clone()).solve(u));
+        assertEquals("(math.max(X,(2*3))+(-(4 div 2)))", e.toString());
+
+        // the compiled form is discarded when the vars are renamed
+        Literal l = Literal.parseLiteral("p(X+1)");
+        assertEquals(2.0, ((ArithExpr)l.getTerm(0)).solve(u));
+        l.makeVarsAnnon();
+        try {
+            ((ArithExpr)l.getTerm(0)).solve(u);
+            fail("the var of the expression was renamed");
+        } catch (NoValueException ex) {
+        }
+    }
+
     public void testApply() {
         NumberTerm nb = ArithExpr.parseExpr("(30-X)/(2*X)");
         Unifier u = new Unifier();
@@ -2,6 +2,7 @@ package test;
 
 import jason.asSemantics.Unifier;
 import jason.asSyntax.ASSyntax;
+import jason.asSyntax.ArrayListTerm;
 import jason.asSyntax.Atom;
 import jason.asSyntax.ListTerm;
 import jason.asSyntax.ListTermImpl;
@@ -377,4 +378,75 @@ public class ListTermTest extends TestCase {
         return l;
     }
 
+
+    public void testArrayListTerm() throws ParseException {
+        List<Term> elems = new ArrayList<Term>();
+        for (String e: new String[] { "a", "b(1)", "c", "d" })
+            elems.add(ASSyntax.parseTerm(e));
+        ListTerm al = new ArrayListTerm(elems);
+        ListTerm cl = ListTermImpl.parseList("[a,b(1),c,d]");
+
+        assertEquals(4, al.size());
+        assertEquals("c", al.get(2).toString());
+        assertEquals("[a,b(1),c,d]", al.toString());
+        assertEquals(cl, al);
+        assertEquals(al, cl);
+        assertEquals(cl.hashCode(), al.hashCode());
+        assertEquals(0, al.compareTo(cl));
+        assertEquals("[b(1),c,d]", al.getNext().toString());
+        assertEquals(cl.getLast(), al.getLast());
+        assertTrue(al.isGround());
+
+        // unification with a list with tail
+        Unifier u = new Unifier();
+        assertTrue(u.unifies(ListTermImpl.parseList("[X,b(Y)|T]"), al));
+        assertEquals("1", u.get("Y").toString());
+        assertEquals("[c,d]", u.get("T").toString());
+        assertTrue(u.unifies(new VarTerm("L"), cl));
+        assertTrue(u.unifies(new VarTerm("L"), al));
+
+        // terms added in the end are seen by the views of the array (as in a chain of ListTermImpl), other changes are not
+        ListTerm next = al.getNext();
+        al.add(ASSyntax.parseTerm("e"));
+        assertEquals("[b(1),c,d,e]", next.toString());
+        al.remove(0);
+        assertEquals("[b(1),c,d,e]", al.toString());
+        al.add(1, new Atom("x"));
+        assertEquals("[b(1),x,c,d,e]", al.toString());
+        assertEquals("[b(1),c,d,e]", next.toString());
+        assertEquals("e", al.removeLast().toString());
+        assertEquals(4, al.size());
+
+        // append returns the last element, as ListTermImpl
+        al = new ArrayListTerm();
+        ListTerm last = al.append(new Atom("x"));
+        last = last.append(new Atom("y"));
+        assertEquals("[y]", last.toString());
+        last = last.append(new Atom("z"));
+        assertEquals("[z]", last.toString());
+        assertEquals("[x,y,z]", al.toString());
+        assertEquals(ListTermImpl.parseList("[x,y,z]").hashCode(), al.hashCode());
+        last.setNext(ListTermImpl.parseList("[w|T]"));
+        assertEquals("[x,y,z,w|T]", al.toString());
+        assertEquals(ListTermImpl.parseList("[x,y,z,w|T]"), al);
+        assertEquals(ListTermImpl.parseList("[x,y,z,w|T]").hashCode(), al.hashCode());
+        assertEquals("[y,z,w|T]", al.getNext().toString());
+        al.getLast().setNext(new ListTermImpl());
+        assertEquals("[x,y,z,w]", al.toString());
+        assertTrue(al.isGround());
+
+        // tail
+        al = new ArrayListTerm(elems);
+        al.setTail(new VarTerm("T"));
+        assertEquals("[a,b(1),c,d|T]", al.toString());
+        assertFalse(al.isGround());
+        assertEquals(ListTermImpl.parseList("[a,b(1),c,d|T]"), al);
+        assertEquals("[d,c,b(1),a|T]", al.reverse().toString());
+        u = new Unifier();
+        u.unifies(new VarTerm("T"), ListTermImpl.parseList("[e,f]"));
+        ListTerm ap = (ListTerm)al.capply(u);
+        assertEquals("[a,b(1),c,d,e,f]", ap.toString());
+        assertEquals(6, ap.size());
+        assertEquals(ap, ap.clone());
+    }
 }
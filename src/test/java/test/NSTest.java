@@ -385,5 +385,39 @@ public class NSTest extends TestCase {
         a.abolish(ASSyntax.parseLiteral("ns3::_"), null);
         assertEquals(2, a.getBB().size());
     }
-    
+
+    public void testVarNSQuery() throws ParseException {
+        Agent a = new Agent();
+        a.initAg();
+        for (int i=0; i<20; i++) {
+            a.getBB().add(ASSyntax.parseLiteral("ns"+i+"::pos("+i+",0)"));
+            a.getBB().add(ASSyntax.parseLiteral("ns"+i+"::other("+i+")"));
+        }
+        a.getBB().add(ASSyntax.parseLiteral("pos(a,b)"));
+        a.getBB().add(ASSyntax.parseLiteral("ns3::pos(3,1)"));
+
+        // only pos/2 beliefs are candidates
+        Iterator<Literal> i = a.getBB().getCandidateBeliefs(ASSyntax.parseLiteral("NS::pos(X,Y)"), new Unifier());
+        int n = 0;
+        while (i.hasNext()) {
+            assertEquals("pos", i.next().getFunctor());
+            n++;
+        }
+        assertEquals(22, n);
+
+        Iterator<Unifier> r = ASSyntax.parseLiteral("NS::pos(3,Y)").logicalConsequence(a, new Unifier());
+        int s = 0;
+        while (r.hasNext()) {
+            Unifier u = r.next();
+            assertEquals("ns3", u.get("NS").toString());
+            s++;
+        }
+        assertEquals(2, s);
+        assertNull(a.getBB().getCandidateBeliefs(ASSyntax.parseLiteral("NS::unknown(X)"), new Unifier()));
+
+        a.getBB().abolish(new Atom("ns3"), ASSyntax.parseLiteral("ns3::pos(0,0)").getPredicateIndicator());
+        assertFalse(ASSyntax.parseLiteral("NS::pos(3,Y)").logicalConsequence(a, new Unifier()).hasNext());
+        assertTrue(a.getBB().remove(ASSyntax.parseLiteral("ns4::pos(4,0)")));
+        assertFalse(ASSyntax.parseLiteral("NS::pos(4,Y)").logicalConsequence(a, new Unifier()).hasNext());
+    }
 }
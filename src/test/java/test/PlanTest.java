@@ -133,4 +133,36 @@ public class PlanTest extends TestCase {
         assertEquals("{ +!g : c <- .print(0); .print(a); .print(b); .print(c); .print(a); .print(b); .print(c); .print(d); a1 }", pt.toString());
     }
 
+    public void testVarSlots() throws JasonException, ParseException {
+        PlanLibrary pl = new PlanLibrary();
+        Plan p = ASSyntax.parsePlan("+!g(X,_) : c(Y) <- .print(X,Y,Z); W = X.");
+        assertNull(p.getVarSlots());
+        pl.add(p);
+        assertEquals(4, p.getVarSlots().size()); // X, Y, Z, W
+
+        Unifier u = p.isRelevant(ASSyntax.parseTrigger("+!g(1,V)"));
+        assertNotNull(u);
+        assertEquals("1", u.get("X").toString());
+        assertTrue(u.unifies(new VarTerm("Y"), ASSyntax.parseTerm("b")));
+        assertTrue(u.unifies(new VarTerm("V"), ASSyntax.parseTerm("v"))); // a var without slot
+        assertEquals("b", u.get("Y").toString());
+        assertEquals("v", u.get("V").toString());
+
+        // the result is the same as a normal unifier
+        Unifier n = new Unifier();
+        n.unifies(ASSyntax.parseTrigger("+!g(X,_)").getLiteral(), ASSyntax.parseTrigger("+!g(1,V)").getLiteral());
+        n.unifies(new VarTerm("Y"), ASSyntax.parseTerm("b"));
+        n.unifies(new VarTerm("V"), ASSyntax.parseTerm("v"));
+        assertEquals(n.size(), u.size());
+
+        Unifier c = u.clone();
+        assertEquals(u, c);
+        c.remove(new VarTerm("Y"));
+        assertNull(c.get("Y"));
+        assertEquals("b", u.get("Y").toString());
+
+        // the body uses the unifier of the plan
+        Term print = p.getBody().getBodyTerm().capply(u);
+        assertEquals(".print(1,b,Z)", print.toString());
+    }
 }
@@ -36,4 +36,37 @@ public class StringTermTest extends TestCase {
         assertFalse(u.unifies(v1, t3));
 
     }
+
+    public void testViews() {
+        StringBuilder text = new StringBuilder("hello ");
+        for (int i = 0; i < 20; i++)
+            text.append("world");
+        StringTermImpl s = new StringTermImpl(text.toString());
+        StringTermImpl w = s.substring(6, 106);
+        assertEquals(100, w.length());
+        assertFalse(w.getCharSequence() instanceof String); // not materialised
+        assertEquals("orl", w.substring(1, 4).getString());
+        assertTrue(w.substring(1, 4).getCharSequence() instanceof String); // small substrings are copied
+        assertEquals(new StringTermImpl(text.substring(6)), w);
+        assertEquals(new StringTermImpl(text.substring(6)).hashCode(), w.hashCode());
+        assertSame(s, s.substring(0, 106));
+        w = s.substring(6, 11);
+
+        // many concats (as in a loop that accumulates a string)
+        StringTermImpl acc = new StringTermImpl("");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            acc = StringTermImpl.concat(acc.getCharSequence(), w.getCharSequence(), String.valueOf(i));
+            expected.append("world").append(i);
+        }
+        assertEquals(expected.length(), acc.length());
+        assertEquals('w', acc.getCharSequence().charAt(expected.length()-9));
+        assertEquals(expected.substring(100, 200), acc.substring(100, 200).getString());
+        StringTermImpl half = acc.substring(expected.length()/2, expected.length());
+        assertFalse(half.getCharSequence() instanceof String);
+        assertEquals(expected.substring(expected.length()/2), half.getString());
+        assertEquals(expected.substring(expected.length()/2 + 3, expected.length()/2 + 90), half.substring(3, 90).getString());
+        assertEquals(expected.toString(), acc.getString());
+        assertEquals("\"ab\"", StringTermImpl.concat("a", "b").toString());
+    }
 }
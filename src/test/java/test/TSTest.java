@@ -4,10 +4,13 @@ import jason.JasonException;
 import jason.architecture.AgArch;
 import jason.asSemantics.Agent;
 import jason.asSemantics.Circumstance;
+import jason.asSemantics.Event;
+import jason.asSemantics.IntendedMeans;
 import jason.asSemantics.Intention;
 import jason.asSemantics.InternalAction;
 import jason.asSemantics.Option;
 import jason.asSemantics.TransitionSystem;
+import jason.asSemantics.Unifier;
 import jason.asSyntax.ASSyntax;
 import jason.asSyntax.ArithFunctionTerm;
 import jason.asSyntax.InternalActionLiteral;
@@ -15,9 +18,12 @@ import jason.asSyntax.Literal;
 import jason.asSyntax.Plan;
 import jason.asSyntax.Structure;
 import jason.asSyntax.Trigger;
+import jason.asSyntax.VarTerm;
 import jason.asSyntax.parser.ParseException;
+import jason.asunit.TestAgent;
 import jason.runtime.Settings;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
@@ -111,6 +117,174 @@ public class TSTest extends TestCase {
 
     }
 
+    public void testEventQueue() throws ParseException {
+        Circumstance c = new Circumstance();
+        for (int i = 0; i < 1000; i++)
+            c.addExternalEv(ASSyntax.parseTrigger("+!g("+i+")"));
+        c.addExternalEv(ASSyntax.parseTrigger("+b(1)"));
+        c.addExternalEv(ASSyntax.parseTrigger("+!g(10)"));
+        c.insertMetaEvent(new Event(ASSyntax.parseTrigger("^!g(1)[state(started)]"), Intention.EmptyInt));
+        assertEquals(1003, c.getEvents().size());
+
+        // only the events with the same predicate indicator are candidates
+        int n = 0;
+        for (Event e: c.getEvents(ASSyntax.parseTrigger("+b(X)"), new Unifier())) {
+            assertEquals("+b(1)", e.getTrigger().toString());
+            n++;
+        }
+        assertEquals(1, n);
+
+        c.removeEvents(ASSyntax.parseTrigger("+!g(10)"), new Unifier());
+        assertEquals(1001, c.getEvents().size());
+        c.removeEvent(new Event(ASSyntax.parseTrigger("+!g(0)"), Intention.EmptyInt));
+
+        // FIFO order (after meta events)
+        Iterator<Event> i = c.getEvents().iterator();
+        assertEquals("^!g(1)[state(started)]", i.next().getTrigger().toString());
+        i.remove();
+        assertEquals("+!g(1)", c.getEvents().poll().getTrigger().toString());
+        assertEquals("+!g(2)", c.getEvents().peek().getTrigger().toString());
+        assertEquals(998, c.getEvents().size());
+
+        Unifier u = new Unifier();
+        u.unifies(new VarTerm("G"), ASSyntax.parseLiteral("g(_)"));
+        String before = u.toString();
+        c.removeEvents(ASSyntax.parseTrigger("+!G"), u);
+        assertEquals("[+b(1)]", c.getEvents().toString());
+        assertEquals(before, u.toString()); // the bindings of each event are undone
+
+        // the candidates for a trigger (with the same PI or a var) are in the order of the queue
+        c.addExternalEv(ASSyntax.parseTrigger("+!G"));
+        c.addExternalEv(ASSyntax.parseTrigger("+b(2)"));
+        c.addExternalEv(ASSyntax.parseTrigger("+!h"));
+        c.addExternalEv(ASSyntax.parseTrigger("+B"));
+        c.insertMetaEvent(new Event(ASSyntax.parseTrigger("^!g(1)[state(started)]"), Intention.EmptyInt));
+        c.insertMetaEvent(new Event(ASSyntax.parseTrigger("^!X[state(started)]"), Intention.EmptyInt));
+        StringBuilder s = new StringBuilder();
+        for (Event e: c.getEvents(ASSyntax.parseTrigger("+b(X)"), new Unifier()))
+            s.append(e.getTrigger()).append(' ');
+        assertEquals("^!X[state(started)] +b(1) +!G +b(2) +B ", s.toString());
+        s = new StringBuilder();
+        for (Event e: c.getEvents(ASSyntax.parseTrigger("^!g(X)[state(S)]"), new Unifier()))
+            s.append(e.getTrigger()).append(' ');
+        assertEquals("^!g(1)[state(started)] ^!X[state(started)] +!G +B ", s.toString());
+    }
+
+    public void testPriorities() throws ParseException {
+        Circumstance c = new Circumstance();
+        c.addExternalEv(ASSyntax.parseTrigger("+!g(1)"));
+        c.addExternalEv(ASSyntax.parseTrigger("+!g(2)[priority(5)]"));
+        c.addExternalEv(ASSyntax.parseTrigger("+!g(3)"));
+        c.addExternalEv(ASSyntax.parseTrigger("+!g(4)[priority(9)]"));
+        c.addExternalEv(ASSyntax.parseTrigger("+!g(5)[priority(-1)]"));
+        c.insertMetaEvent(new Event(ASSyntax.parseTrigger("^!g(1)[state(started)]"), Intention.EmptyInt));
+        assertEquals("^!g(1)[state(started)]", c.getEvents().peek().getTrigger().toString());
+        StringBuilder s = new StringBuilder();
+        while (c.hasEvent())
+            s.append(c.getEvents().poll().getTrigger().getLiteral().getTerm(0));
+        assertEquals("142135", s.toString());
+
+        // back to FIFO
+        c.addExternalEv(ASSyntax.parseTrigger("+!g(1)"));
+        c.addExternalEv(ASSyntax.parseTrigger("+!g(2)"));
+        assertEquals("+!g(1)", c.getEvents().poll().getTrigger().toString());
+
+        // intentions: the priority comes from the plan label or the trigger and is inherited by sub-goals
+        Plan p1 = ASSyntax.parsePlan("@l1[priority(P)] +!a(P) <- .print.");
+        Plan p2 = ASSyntax.parsePlan("+!b <- .print.");
+        Intention[] is = new Intention[5];
+        for (int i = 0; i < is.length; i++)
+            is[i] = new Intention();
+        Unifier u = new Unifier();
+        u.unifies(ASSyntax.parseLiteral("a(P)"), ASSyntax.parseLiteral("a(3)"));
+        is[1].push(new IntendedMeans(new Option(p1, u), null));
+        is[2].push(new IntendedMeans(new Option(p2, new Unifier()), ASSyntax.parseTrigger("+!b[priority(7)]")));
+        is[3].push(new IntendedMeans(new Option(p1, u), null));
+        is[3].push(new IntendedMeans(new Option(p2, new Unifier()), null));
+        assertEquals(3, is[1].getPriority().intValue());
+        assertEquals(7, is[2].getPriority().intValue());
+        assertEquals(3, is[3].getPriority().intValue());
+        assertNull(is[4].getPriority());
+        assertEquals(7, new Event(ASSyntax.parseTrigger("+!c"), is[2]).getPriority().intValue());
+
+        c.addIntention(is[0]);
+        c.addIntention(is[4]);
+        c.addIntention(is[1]);
+        c.addIntention(is[2]);
+        c.addIntention(is[3]);
+        assertTrue(c.getIntentions().contains(is[4]));
+        assertTrue(c.removeIntention(is[4]));
+        assertEquals(4, c.getIntentions().size());
+        assertSame(is[2], c.getIntentions().poll());
+        assertSame(is[1], c.getIntentions().poll());
+        assertSame(is[3], c.getIntentions().poll());
+        assertSame(is[0], c.getIntentions().poll());
+        assertNull(c.getIntentions().poll());
+    }
+
+    public void testEventsPerCycle() throws ParseException {
+        TestAgent ag = new TestAgent();
+        ag.parseAScode("+b(X) <- .print(X). +!g(X) : X > 2 <- .print(X).");
+        TransitionSystem ts = ag.getTS();
+        for (int i = 0; i < 7; i++)
+            ts.getC().addExternalEv(ASSyntax.parseTrigger("+b("+i+")"));
+
+        // default: one event by deliberation
+        ts.deliberate();
+        assertEquals(1, ts.getC().getIntentions().size());
+        assertEquals(6, ts.getC().getEvents().size());
+
+        ts.getSettings().setEventsPerCycle(4);
+        ts.deliberate();
+        assertEquals(5, ts.getC().getIntentions().size());
+        assertEquals(2, ts.getC().getEvents().size());
+        ts.deliberate();
+        assertEquals(7, ts.getC().getIntentions().size());
+        assertFalse(ts.getC().hasEvent());
+
+        // goals without applicable plans are handled in the batch
+        ts.getC().getIntentions().clear();
+        for (int i = 0; i < 4; i++)
+            ts.getC().addExternalEv(ASSyntax.parseTrigger("+!g("+i+")"));
+        ts.deliberate();
+        assertEquals(1, ts.getC().getIntentions().size());
+    }
+
+    public void testPendingIntentions() {
+        Circumstance c = new Circumstance();
+        Intention[] is = new Intention[1000];
+        for (int i = 0; i < is.length; i++) {
+            is[i] = new Intention();
+            c.addPendingIntention("w"+i, is[i]);
+        }
+        c.addPendingIntention("suspended-"+is[5].getId(), is[5]); // the same intention under two keys
+        assertEquals(1001, c.getPendingIntentions().size());
+
+        assertSame(is[10], c.removePendingIntention(is[10].getId()));
+        assertNull(c.removePendingIntention(is[10].getId()));
+        assertTrue(c.dropPendingIntention(is[20]));
+        assertFalse(c.dropPendingIntention(is[20]));
+        assertFalse(c.getPendingIntentions().containsValue(is[20]));
+
+        // both keys of is[5] are removed
+        assertTrue(c.dropPendingIntention(is[5]));
+        assertTrue(c.dropPendingIntention(is[5]));
+        assertFalse(c.dropPendingIntention(is[5]));
+
+        // changes by iterators (as in .resume) update the index
+        Iterator<String> ik = c.getPendingIntentions().keySet().iterator();
+        while (ik.hasNext())
+            if (ik.next().equals("w30"))
+                ik.remove();
+        assertNull(c.removePendingIntention(is[30].getId()));
+        assertSame(is[31], c.removePendingIntention(is[31].getId()));
+        assertEquals(995, c.getPendingIntentions().size());
+
+        c.clearPendingIntentions();
+        assertFalse(c.hasPendingIntention());
+        assertNull(c.removePendingIntention(is[40].getId()));
+    }
+
     public void testCustomSelOp() {
         assertFalse(new Test1().hasCustomSelectOption());
         assertTrue(new Test2().hasCustomSelectOption());
@@ -381,6 +381,27 @@ public class TermTest extends TestCase {
         assertEquals("p[a,b,c,z]",t1.toString());
     }
 
+    public void testCapplySharesGround() throws ParseException {
+        Literal l = parseLiteral("p(f(g(1),\"s\"), [a,h(b)], X, q(X), 1+2, N::k(1))[source(self)]");
+        Unifier u = new Unifier();
+        u.unifies(new VarTerm("X"), parseTerm("z(2)"));
+        u.unifies(new VarTerm("N"), new Atom("ns1"));
+        Literal c = (Literal)l.capply(u);
+        assertEquals("p(f(g(1),\"s\"),[a,h(b)],z(2),q(z(2)),3,ns1::k(1))[source(self)]", c.toString());
+        assertNotSame(l, c);
+        assertSame(l.getTerm(0), c.getTerm(0)); // ground args are shared
+        assertSame(l.getTerm(1), c.getTerm(1));
+        assertNotSame(l.getTerm(3), c.getTerm(3));
+        assertNotSame(l.getTerm(5), c.getTerm(5));
+
+        // elements of a non ground list
+        ListTerm lt = (ListTerm)parseTerm("[f(1),X]").capply(u);
+        assertEquals("[f(1),z(2)]", lt.toString());
+
+        // clone is still a deep copy
+        assertNotSame(l.getTerm(0), l.copy().getTerm(0));
+    }
+
     public void testTrigger() {
         Pred p1 = new Pred("pos");
 
@@ -898,6 +919,95 @@ public class TermTest extends TestCase {
         assertEquals(8,p2.getAnnots().size());
     }
 
+    public void testManyAnnots() {
+        Literal p = Literal.parseLiteral("p");
+        for (int i = 99; i >= 0; i--) // added in reverse order
+            p.addSource(new Atom("ag"+i));
+        p.addAnnot(new Atom("a"));
+        assertEquals(101, p.getAnnots().size());
+        assertEquals(100, p.getSources().size());
+        assertEquals("a", p.getAnnots().getTerm().toString());
+        assertTrue(p.hasSource(new Atom("ag42")));
+        assertFalse(p.hasSource(new Atom("bob")));
+        assertFalse(p.addAnnot(Literal.parseLiteral("source(ag7)")));
+
+        assertTrue(p.delSource(new Atom("ag42")));
+        assertFalse(p.delSource(new Atom("ag42")));
+        assertFalse(p.hasSource(new Atom("ag42")));
+
+        // the annots are still sorted
+        Term last = null;
+        for (Term t: p.getAnnots()) {
+            if (last != null)
+                assertTrue(last.compareTo(t) < 0);
+            last = t;
+        }
+
+        // subset by merge
+        Literal s = Literal.parseLiteral("p[a,source(ag3),source(ag98)]");
+        assertTrue(s.hasSubsetAnnot(p));
+        assertTrue(s.hasSubsetAnnot(p, new Unifier()));
+        assertTrue(new Unifier().unifies(s, p));
+        s.addSource(new Atom("ag42"));
+        assertFalse(s.hasSubsetAnnot(p));
+        assertFalse(s.hasSubsetAnnot(p, new Unifier()));
+        assertFalse(new Unifier().unifies(s, p));
+
+        Unifier u = new Unifier();
+        assertTrue(u.unifies(Literal.parseLiteral("p[a,source(X)|T]"), p));
+        assertEquals("ag0", u.get("X").toString());
+        assertEquals(98, ((ListTerm)u.get("T")).size());
+
+        assertTrue(p.delAnnots(p.getAnnots()));
+        assertFalse(p.hasAnnot());
+    }
+
+    public void testHashCodeCache() throws ParseException {
+        ListTerm l = ASSyntax.parseList("[a,b]");
+        int h = l.hashCode();
+        l.add(new Atom("c"));
+        assertFalse(h == l.hashCode());
+        assertEquals(ASSyntax.parseList("[a,b,c]").hashCode(), l.hashCode());
+        assertEquals(ASSyntax.parseList("[a,b,c]"), l);
+
+        Literal p1 = parseLiteral("p(1,[a])[x,y]");
+        Literal p2 = parseLiteral("p(1,[a])[y,x]");
+        Literal p3 = parseLiteral("p(2,[a])[x,y]");
+        p1.hashCode(); p2.hashCode(); p3.hashCode();
+        assertEquals(p1, p2);
+        assertFalse(p1.equals(p3));
+        assertFalse(p1.equals(parseLiteral("p(1,[a])[x]")));
+        assertFalse(p1.equals(parseLiteral("p(1,[a])[x,y,z]")));
+        assertTrue(p1.equalsAsStructure(parseLiteral("p(1,[a])")));
+
+        // equals after the term is changed
+        Structure s1 = (Structure)parseTerm("f(a)");
+        Structure s2 = (Structure)parseTerm("f(b)");
+        assertFalse(s1.equals(s2));
+        s2.setTerm(0, new Atom("a"));
+        assertTrue(s1.equals(s2));
+
+        // a list changed by an iterator
+        ListTerm l1 = ASSyntax.parseList("[a,b,c]");
+        ListTerm l2 = ASSyntax.parseList("[a,c]");
+        l1.hashCode(); l2.hashCode();
+        Iterator<Term> i = l1.iterator();
+        while (i.hasNext())
+            if (i.next().toString().equals("b"))
+                i.remove();
+        assertEquals("[a,c]", l1.toString());
+        assertEquals(l2, l1);
+        assertEquals(l2.hashCode(), l1.hashCode());
+
+        // a list changed through another list that shares its cells
+        l1 = ASSyntax.parseList("[a,b]");
+        ListTerm l3 = ASSyntax.parseList("[x]");
+        l3.concat(l1.getNext());
+        l3.hashCode();
+        l1.getNext().setTerm(new Atom("c"));
+        assertEquals(ASSyntax.parseList("[x,c]"), l3);
+    }
+
     public void testGetTermsArray() {
         Structure s2 = createStructure("a");
         s2.addTerms(createNumber(1), createNumber(2), createNumber(3));
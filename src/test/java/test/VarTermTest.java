@@ -21,6 +21,7 @@ import jason.asSyntax.Literal;
 import jason.asSyntax.LiteralImpl;
 import jason.asSyntax.NumberTerm;
 import jason.asSyntax.NumberTermImpl;
+import jason.asSyntax.ObjectTermImpl;
 import jason.asSyntax.Pred;
 import jason.asSyntax.StringTermImpl;
 import jason.asSyntax.Structure;
@@ -664,4 +665,49 @@ public class VarTermTest extends TestCase {
         */
     }
 
+
+    public void testMarkUndo() throws ParseException {
+        Unifier u = new Unifier();
+        u.unifies(new VarTerm("X"), ASSyntax.parseTerm("1"));
+        String before = u.toString();
+
+        int m = u.mark();
+        assertTrue(u.unifiesNoUndo(ASSyntax.parseLiteral("p(X,Y,Z)"), ASSyntax.parseLiteral("p(1,b,Y)")));
+        assertEquals("b", u.get("Z").toString());
+        u.undo(m);
+        assertEquals(before, u.toString());
+        assertNull(u.get("Y"));
+
+        // nested marks
+        m = u.mark();
+        u.unifiesNoUndo(new VarTerm("A"), ASSyntax.parseTerm("a"));
+        int m2 = u.mark();
+        u.unifiesNoUndo(new VarTerm("B"), ASSyntax.parseTerm("b"));
+        u.clear();
+        assertEquals(0, u.size());
+        u.undo(m2);
+        assertEquals("a", u.get("A").toString());
+        assertNull(u.get("B"));
+        u.commit(m);
+        assertEquals("a", u.get("A").toString());
+
+        // unifies restores the unifier when it fails
+        before = u.toString();
+        assertFalse(u.unifies(ASSyntax.parseLiteral("q(C,D,D)"), ASSyntax.parseLiteral("q(c,1,2)")));
+        assertEquals(before, u.toString());
+        assertTrue(u.unifies(ASSyntax.parseLiteral("q(C,D,D)"), ASSyntax.parseLiteral("q(c,1,1)")));
+        assertEquals("c", u.get("C").toString());
+
+        // and when the unification throws an exception
+        Literal r = ASSyntax.createLiteral("r", new VarTerm("E"), new ObjectTermImpl("o") {
+            public boolean equals(Object o) {
+                throw new IllegalStateException();
+            }
+        });
+        try {
+            u.unifies(r, ASSyntax.createLiteral("r", ASSyntax.createNumber(1), new ObjectTermImpl("o")));
+            fail("the unification should throw an exception");
+        } catch (IllegalStateException e) { }
+        assertNull(u.get("E"));
+    }
 }
@@ -0,0 +1,45 @@
+package test.asunit;
+
+import jason.asSyntax.Literal;
+import jason.asunit.TestAgent;
+import jason.environment.Environment;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSharedPercepts {
+
+    TestAgent ag;
+    Environment env;
+
+    @Before
+    public void setupAg() {
+        env = new Environment();
+        env.setSharedPercepts(true);
+        env.addPercept(Literal.parseLiteral("a(10)"));
+
+        ag = new TestAgent();
+        ag.getArch().setEnv(env);
+
+        // defines the agent's AgentSpeak code
+        ag.parseAScode(
+            "+a(X)[source(percept)] <- +a(X)[source(self)]; ?a(X)[source(S)]; jason.asunit.print(X,S); +b(X). " +
+            "-a(X)[source(percept)] <- jason.asunit.print(gone(X)). "
+        );
+    }
+
+    @After
+    public void stopEnv() {
+        env.stop();
+    }
+
+    @Test(timeout=3000)
+    public void testPlanCycle() {
+        ag.assertPrint("10percept", 10);
+        ag.assertBel("a(10)[source(self)] & b(10)", 5);
+        env.removePercept(Literal.parseLiteral("a(10)"));
+        ag.assertPrint("gone(10)", 10);
+        ag.assertBel("a(10)[source(self)]", 5);
+    }
+}